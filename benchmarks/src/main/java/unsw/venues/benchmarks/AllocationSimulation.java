@@ -0,0 +1,86 @@
+package unsw.venues.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+
+import unsw.venues.AllocationStrategy;
+import unsw.venues.VenueHireSystem;
+
+/**
+ * Replays the same command stream under each room allocation strategy and
+ * compares how many requests and changes are accepted and what each one
+ * costs. Generate a stream with WorkloadGenerator first; a high skew and low
+ * cancel rate keep calendars crowded enough for the strategies to differ.
+ *
+ * Usage: AllocationSimulation file [strategy ...]
+ * @author Frank Merriman
+ */
+public class AllocationSimulation {
+
+    public static void main(String[] args) throws IOException {
+        List<JSONObject> commands = new ArrayList<JSONObject>();
+        for (String line : Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            if (!line.trim().equals("")) {
+                commands.add(new JSONObject(line));
+            }
+        }
+
+        List<String> strategies = new ArrayList<String>();
+        for (int i = 1; i < args.length; i++) {
+            strategies.add(args[i]);
+        }
+        if (strategies.isEmpty()) {
+            strategies.add("first-fit");
+            strategies.add("best-fit");
+        }
+
+        System.out.printf("%-10s %10s %10s %10s %10s %12s%n",
+            "strategy", "requests", "accepted", "changes", "accepted", "us/booking");
+
+        for (String name : strategies) {
+            VenueHireSystem system = new VenueHireSystem(AllocationStrategy.named(name));
+            long requests = 0;
+            long requestsAccepted = 0;
+            long changes = 0;
+            long changesAccepted = 0;
+            long bookingNanos = 0;
+
+            for (JSONObject command : commands) {
+                String type = command.getString("command");
+                long t0 = System.nanoTime();
+                String output = system.processCommand(command);
+                long elapsed = System.nanoTime() - t0;
+
+                boolean accepted = output != null && output.contains("\"success\"");
+                if (type.equals("request")) {
+                    requests++;
+                    bookingNanos += elapsed;
+                    if (accepted) {
+                        requestsAccepted++;
+                    }
+                } else if (type.equals("change")) {
+                    changes++;
+                    bookingNanos += elapsed;
+                    if (accepted) {
+                        changesAccepted++;
+                    }
+                }
+            }
+
+            System.out.printf("%-10s %10d %9.2f%% %10d %9.2f%% %12.1f%n",
+                name, requests, percent(requestsAccepted, requests),
+                changes, percent(changesAccepted, changes),
+                bookingNanos / 1e3 / Math.max(1, requests + changes));
+        }
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
@@ -0,0 +1,83 @@
+package unsw.venues.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unsw.venues.Identifiers;
+import unsw.venues.BookingHelper;
+
+/**
+ * Benchmarks the per room calendar operations in BookingHelper
+ * @author Frank Merriman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingHelperBenchmark {
+    @Param({"10", "100", "1000"})
+    public int bookingsPerRoom;
+
+    private BookingHelper helper;
+    private int newID;
+    private LocalDate freeStart;
+    private LocalDate freeEnd;
+    private LocalDate takenStart;
+    private LocalDate takenEnd;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        newID = Identifiers.intern("new");
+        helper = Fixtures.bookingHelper(bookingsPerRoom);
+
+        int middle = (bookingsPerRoom - 1) / 2;
+        freeStart = Fixtures.gapStart(middle);
+        freeEnd = Fixtures.gapEnd(middle);
+        takenStart = Fixtures.bookedStart(middle);
+        takenEnd = takenStart.plusDays(1);
+    }
+
+    /**
+     * Removes the booking made by addBooking after each invocation so every
+     * invocation sees the same calendars
+     */
+    @State(Scope.Thread)
+    public static class NewBooking {
+        @TearDown(Level.Invocation)
+        public void remove(BookingHelperBenchmark bench) {
+            bench.helper.removeBooking(bench.newID);
+        }
+    }
+
+    @Benchmark
+    public boolean avaliableSpaceFree() {
+        return helper.avaliableSpace(newID, freeStart, freeEnd);
+    }
+
+    @Benchmark
+    public boolean avaliableSpaceTaken() {
+        return helper.avaliableSpace(newID, takenStart, takenEnd);
+    }
+
+    @Benchmark
+    public BookingHelper addBooking(NewBooking newBooking) {
+        helper.addBooking(newID, freeStart, freeEnd);
+        return helper;
+    }
+}
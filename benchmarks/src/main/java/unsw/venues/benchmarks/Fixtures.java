@@ -0,0 +1,161 @@
+package unsw.venues.benchmarks;
+
+import java.time.LocalDate;
+
+import unsw.venues.AllocationStrategy;
+import unsw.venues.BookingHelper;
+import unsw.venues.Identifiers;
+import unsw.venues.RoomHelper;
+import unsw.venues.RoomSize;
+import unsw.venues.VenueHelper;
+
+/**
+ * Builds pre-populated booking structures for the benchmarks.
+ *
+ * Every room gets the same calendar: a two day booking every STRIDE days
+ * starting at BASE, which leaves a two day gap between each pair of bookings.
+ * Gap k runs from gapStart(k) to gapEnd(k) and fits a two day request exactly.
+ * Bookings are added latest first so every insert lands at the head of the
+ * room's list.
+ * @author Frank Merriman
+ */
+public final class Fixtures {
+    public static final LocalDate BASE = LocalDate.of(2020, 1, 1);
+    public static final int STRIDE = 4;
+
+    private static final String[] SIZES = {"small", "medium", "large"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * First day of the k'th free gap in a fixture room
+     * @param k index of the gap, 0 is the gap after the first booking
+     * @return first free day
+     */
+    public static LocalDate gapStart(int k) {
+        return BASE.plusDays(k * STRIDE + 2);
+    }
+
+    /**
+     * Last day of the k'th free gap in a fixture room
+     * @param k index of the gap, 0 is the gap after the first booking
+     * @return last free day
+     */
+    public static LocalDate gapEnd(int k) {
+        return BASE.plusDays(k * STRIDE + 3);
+    }
+
+    /**
+     * First day of the k'th existing booking in a fixture room
+     * @param k index of the booking
+     * @return start date of the booking
+     */
+    public static LocalDate bookedStart(int k) {
+        return BASE.plusDays(k * STRIDE);
+    }
+
+    /**
+     * Size given to the i'th room of a venue, cycling small, medium, large
+     * @param i index of the room in its venue
+     * @return size of the room
+     */
+    public static String sizeOf(int i) {
+        return SIZES[i % SIZES.length];
+    }
+
+    /**
+     * Name of the i'th room in the v'th venue
+     */
+    public static String roomName(int v, int i) {
+        return "v" + v + "-r" + i;
+    }
+
+    /**
+     * Name of the v'th venue
+     */
+    public static String venueName(int v) {
+        return "venue" + v;
+    }
+
+    /**
+     * Creates a BookingHelper holding the fixture calendar
+     * @param bookings number of bookings to add
+     * @return populated BookingHelper
+     */
+    public static BookingHelper bookingHelper(int bookings) {
+        BookingHelper helper = new BookingHelper();
+        for (int k = bookings - 1; k >= 0; k--) {
+            helper.addBooking(Identifiers.intern("b" + k), bookedStart(k), bookedStart(k).plusDays(1));
+        }
+        return helper;
+    }
+
+    /**
+     * Creates a RoomHelper with the given number of rooms, each holding
+     * the fixture calendar
+     * @param rooms number of rooms in the venue
+     * @param bookings number of bookings in each room
+     * @param strategy allocation strategy used by the venue
+     * @return populated RoomHelper
+     */
+    public static RoomHelper roomHelper(int rooms, int bookings, AllocationStrategy strategy) {
+        RoomHelper helper = new RoomHelper(strategy);
+        for (int i = 0; i < rooms; i++) {
+            helper.addRoom(Identifiers.intern(roomName(0, i)), RoomSize.fromString(sizeOf(i)));
+        }
+        // one multi-room booking per slot keeps every room's calendar identical
+        for (int k = bookings - 1; k >= 0; k--) {
+            helper.addBooking(Identifiers.intern("b" + k), bookedStart(k), bookedStart(k).plusDays(1),
+                rooms, rooms, rooms);
+        }
+        return helper;
+    }
+
+    /**
+     * Creates a VenueHelper with the given number of venues and rooms,
+     * each room holding the fixture calendar
+     * @param venues number of venues
+     * @param rooms number of rooms in each venue
+     * @param bookings number of bookings in each room
+     * @return populated VenueHelper
+     */
+    public static VenueHelper venueHelper(int venues, int rooms, int bookings) {
+        VenueHelper helper = new VenueHelper();
+        for (int v = 0; v < venues; v++) {
+            for (int i = 0; i < rooms; i++) {
+                helper.addRoom(venueName(v), roomName(v, i), sizeOf(i));
+            }
+        }
+        // a whole venue per booking, so the first-fit search fills the venues in order
+        for (int k = bookings - 1; k >= 0; k--) {
+            for (int v = 0; v < venues; v++) {
+                helper.addBooking("b" + k + "-" + v, bookedStart(k), bookedStart(k).plusDays(1),
+                    roomsOfSize(rooms, 0), roomsOfSize(rooms, 1), roomsOfSize(rooms, 2));
+            }
+        }
+        return helper;
+    }
+
+    /**
+     * Number of rooms of the given size in a fixture venue
+     * @param rooms total number of rooms in the venue
+     * @param sizeIndex 0 for small, 1 for medium, 2 for large
+     * @return number of rooms of that size
+     */
+    public static int roomsOfSize(int rooms, int sizeIndex) {
+        return rooms / SIZES.length + (sizeIndex < rooms % SIZES.length ? 1 : 0);
+    }
+
+    /**
+     * Parses a request mix parameter of the form "small/medium/large"
+     * @param mix number of small, medium and large rooms separated by '/'
+     * @return array holding the small, medium and large counts
+     */
+    public static int[] parseMix(String mix) {
+        String[] parts = mix.split("/");
+        return new int[] {
+            Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2])
+        };
+    }
+}
@@ -0,0 +1,243 @@
+package unsw.venues.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import unsw.venues.CommandPipeline;
+import unsw.venues.VenueHireSystem;
+
+/**
+ * Replays a command stream through a fresh VenueHireSystem and reports
+ * throughput, latency percentiles per command type and a SHA-256 digest of
+ * everything the system printed.
+ *
+ * The whole file is read into memory before the clock starts. Each command's
+ * latency covers parsing the line, executing it and formatting its output.
+ * With --runs n the stream is replayed n times and the digests must agree;
+ * with --expect the digest must match the given hex string. Either check
+ * failing exits with status 1.
+ *
+ * With --pipeline the stream runs through a CommandPipeline instead, and
+ * only throughput and the digest are reported, since commands overlap.
+ *
+ * Usage: ReplayHarness file [--runs n] [--expect digest] [--pipeline]
+ * @author Frank Merriman
+ */
+public class ReplayHarness {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    private final List<String> lines;
+
+    /**
+     * Constructor for ReplayHarness
+     * @param lines non blank command lines to replay
+     */
+    public ReplayHarness(List<String> lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Replays every line once through a new system
+     * @return hex SHA-256 digest of the printed output
+     */
+    public String replay() {
+        VenueHireSystem system = new VenueHireSystem();
+        MessageDigest digest = sha256();
+        Map<String, LatencyLog> latencies = new LinkedHashMap<String, LatencyLog>();
+        LatencyLog all = new LatencyLog(lines.size());
+
+        long began = System.nanoTime();
+        for (String line : lines) {
+            long t0 = System.nanoTime();
+            JSONObject command = new JSONObject(line);
+            String output = system.processCommand(command);
+            long elapsed = System.nanoTime() - t0;
+
+            all.add(elapsed);
+            latencies.computeIfAbsent(command.getString("command"), k -> new LatencyLog(1024)).add(elapsed);
+
+            if (output != null) {
+                digest.update(output.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+        }
+        long total = System.nanoTime() - began;
+
+        System.out.printf("%d commands in %.3f s, %.0f commands/s%n",
+            lines.size(), total / 1e9, lines.size() / (total / 1e9));
+        System.out.println(LatencyLog.header());
+        System.out.println(all.summary("all"));
+        for (Map.Entry<String, LatencyLog> e : latencies.entrySet()) {
+            System.out.println(e.getValue().summary(e.getKey()));
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Replays every line once through a new system behind a CommandPipeline
+     * @return hex SHA-256 digest of the printed output
+     */
+    public String replayPipelined() {
+        BufferedReader in = new BufferedReader(new StringReader(String.join("\n", lines)));
+        DigestWriter out = new DigestWriter();
+
+        long began = System.nanoTime();
+        try {
+            new CommandPipeline(new VenueHireSystem(), 64, 256).run(in, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long total = System.nanoTime() - began;
+
+        System.out.printf("%d commands in %.3f s, %.0f commands/s (pipelined)%n",
+            lines.size(), total / 1e9, lines.size() / (total / 1e9));
+
+        return toHex(out.digest.digest());
+    }
+
+    /**
+     * Writer that only feeds what is written into a SHA-256 digest
+     */
+    private static class DigestWriter extends Writer {
+        private final MessageDigest digest = sha256();
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            digest.update(new String(chars, offset, length).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void write(String text) {
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Growable array of latency samples in nanoseconds. Percentiles are
+     * exact, taken from the sorted samples.
+     */
+    private static class LatencyLog {
+        private long[] samples;
+        private int count;
+
+        LatencyLog(int capacity) {
+            samples = new long[Math.max(capacity, 16)];
+        }
+
+        void add(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count] = nanos;
+            count = count + 1;
+        }
+
+        static String header() {
+            StringBuilder header = new StringBuilder(String.format("%-10s %10s", "command", "count"));
+            for (double p : PERCENTILES) {
+                header.append(String.format(" %10s", "p" + (p == (long) p ? String.valueOf((long) p) : String.valueOf(p))));
+            }
+            return header.append("  (us)").toString();
+        }
+
+        String summary(String name) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+
+            StringBuilder line = new StringBuilder(String.format("%-10s %10d", name, count));
+            for (double p : PERCENTILES) {
+                int index = (int) Math.ceil(p / 100 * count) - 1;
+                long nanos = sorted[Math.max(0, Math.min(count - 1, index))];
+                line.append(String.format(" %10.1f", nanos / 1e3));
+            }
+            return line.toString();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int runs = 1;
+        String expected = null;
+        boolean pipelined = false;
+
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--runs": runs = Integer.parseInt(args[i + 1]); break;
+                case "--expect": expected = args[i + 1]; break;
+                case "--pipeline": pipelined = true; i--; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        List<String> lines = new ArrayList<String>();
+        for (String line : Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            if (!line.trim().equals("")) {
+                lines.add(line);
+            }
+        }
+
+        ReplayHarness harness = new ReplayHarness(lines);
+        String first = null;
+        boolean deterministic = true;
+
+        for (int run = 1; run <= runs; run++) {
+            System.out.println("run " + run);
+            String digest = pipelined ? harness.replayPipelined() : harness.replay();
+            System.out.println("digest " + digest);
+
+            if (first == null) {
+                first = digest;
+            } else if (!first.equals(digest)) {
+                deterministic = false;
+            }
+        }
+
+        if (!deterministic) {
+            System.out.println("FAILED: digests differ between runs");
+            System.exit(1);
+        }
+        if (expected != null && !expected.equalsIgnoreCase(first)) {
+            System.out.println("FAILED: expected digest " + expected);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package unsw.venues.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unsw.venues.Identifiers;
+import unsw.venues.AllocationStrategy;
+import unsw.venues.RoomHelper;
+
+/**
+ * Benchmarks room selection within a single venue
+ * @author Frank Merriman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomHelperBenchmark {
+    @Param({"6", "30"})
+    public int roomsPerVenue;
+
+    @Param({"10", "100", "1000"})
+    public int bookingsPerRoom;
+
+    /** small/medium/large rooms in each request */
+    @Param({"1/0/0", "1/1/1", "2/2/2"})
+    public String mix;
+
+    @Param({"first-fit", "best-fit"})
+    public String strategy;
+
+    private RoomHelper helper;
+    private int newID;
+    private LocalDate freeStart;
+    private LocalDate freeEnd;
+    private int small;
+    private int medium;
+    private int large;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        newID = Identifiers.intern("new");
+        helper = Fixtures.roomHelper(roomsPerVenue, bookingsPerRoom,
+            AllocationStrategy.named(strategy));
+
+        int middle = (bookingsPerRoom - 1) / 2;
+        freeStart = Fixtures.gapStart(middle);
+        freeEnd = Fixtures.gapEnd(middle);
+
+        int[] counts = Fixtures.parseMix(mix);
+        small = counts[0];
+        medium = counts[1];
+        large = counts[2];
+    }
+
+    /**
+     * Removes the booking made by addBooking after each invocation so every
+     * invocation sees the same calendars
+     */
+    @State(Scope.Thread)
+    public static class NewBooking {
+        @TearDown(Level.Invocation)
+        public void remove(RoomHelperBenchmark bench) {
+            bench.helper.removeBooking(bench.newID);
+        }
+    }
+
+    @Benchmark
+    public boolean avaliableSpace() {
+        return helper.avaliableSpace(newID, freeStart, freeEnd, small, medium, large);
+    }
+
+    @Benchmark
+    public JSONArray addBooking(NewBooking newBooking) {
+        return helper.addBooking(newID, freeStart, freeEnd, small, medium, large);
+    }
+}
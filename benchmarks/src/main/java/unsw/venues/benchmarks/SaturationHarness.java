@@ -0,0 +1,348 @@
+package unsw.venues.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONObject;
+
+import unsw.venues.LatencyHistogram;
+import unsw.venues.ShardConnection;
+import unsw.venues.ShardServer;
+
+/**
+ * Drives a ShardServer past saturation from many client connections and
+ * checks that tail latency stays bounded.
+ *
+ * The shard is the one deployed: it is started in this JVM with the
+ * -Dvenues.admission properties it would be given on the command line, and
+ * every client thread talks to it over its own loopback connection, so the
+ * commands take the same path as a router's, through the shard's
+ * CommandScheduler and its lock.
+ *
+ * The harness first times the command stream on its own to find how many
+ * commands per second the system can serve. It then offers --overload times
+ * that rate as an open loop: each command is due at a fixed time whether or
+ * not earlier ones have finished, and its latency is measured from when it
+ * was due, so time spent queueing behind a slow system counts. The mix is
+ * mostly requests, with lists, changes and cancels. The first --warmup
+ * seconds of the run are offered the same way but not recorded.
+ *
+ * By default the shard has an admission deadline, and the run fails,
+ * exiting with status 1, if the p99 latency of all commands is over
+ * --max-p99 milliseconds (twice the deadline unless given). With --fifo
+ * the shard is started without one, so commands take turns on its lock,
+ * for comparison, and nothing is checked. SaturationHarnessIT runs a short scheduled overload this way in
+ * mvn verify.
+ *
+ * Usage: SaturationHarness [--seconds n] [--warmup n] [--overload x]
+ * [--deadline ms] [--capacity n] [--max-p99 ms] [--clients n] [--venues n]
+ * [--seed n] [--fifo]
+ * @author Frank Merriman
+ */
+public class SaturationHarness {
+    private static final String[] SIZES = {"small", "medium", "large"};
+    private static final LocalDate BASE = LocalDate.of(2020, 1, 1);
+    private static final int DAYS = 60;
+
+    private int seconds = 5;
+    private int warmup = 1;
+    private double overload = 2;
+    private long deadline = 50;
+    private int capacity = 256;
+    private long maxP99 = -1;
+    private int clients = 512;
+    private int venues = 100;
+    private long seed = 1;
+    private boolean fifo;
+
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<String, LatencyHistogram>();
+    private final Map<String, AtomicInteger> busy = new LinkedHashMap<String, AtomicInteger>();
+    private final LatencyHistogram all = new LatencyHistogram();
+
+    /**
+     * Starts a shard, with a CommandScheduler unless running --fifo
+     * @return the started shard
+     */
+    private ShardServer startShard() throws IOException {
+        if (!fifo) {
+            System.setProperty("venues.admission.deadline", String.valueOf(deadline));
+            System.setProperty("venues.admission.capacity", String.valueOf(capacity));
+        }
+        try {
+            return new ShardServer(0).start();
+        } finally {
+            System.clearProperty("venues.admission.deadline");
+            System.clearProperty("venues.admission.capacity");
+        }
+    }
+
+    /**
+     * Gives every venue its rooms and mostly books the calendar, so
+     * requests are slow and often rejected
+     * @param shard connection to the shard to fill
+     */
+    private void fill(ShardConnection shard) {
+        Random random = new Random(seed);
+
+        for (int v = 0; v < venues; v++) {
+            for (int r = 0; r < 12; r++) {
+                JSONObject room = new JSONObject();
+                room.put("command", "room");
+                room.put("venue", "Venue" + v);
+                room.put("room", "Room" + v + "-" + r);
+                room.put("size", SIZES[random.nextInt(SIZES.length)]);
+                shard.call(room);
+            }
+        }
+
+        for (int i = 0; i < venues * 40; i++) {
+            shard.call(booking("request", "fill" + i, random));
+        }
+    }
+
+    /**
+     * Creates a request or change with random dates and room counts
+     */
+    private static JSONObject booking(String command, String id, Random random) {
+        LocalDate start = BASE.plusDays(random.nextInt(DAYS));
+        JSONObject json = new JSONObject();
+        json.put("command", command);
+        json.put("id", id);
+        json.put("start", start.toString());
+        json.put("end", start.plusDays(random.nextInt(4)).toString());
+        json.put("small", 1 + random.nextInt(2));
+        json.put("medium", random.nextInt(2));
+        json.put("large", random.nextInt(2));
+        return json;
+    }
+
+    /**
+     * Creates the command stream: 80% requests, 10% lists, 5% changes and
+     * 5% cancels of earlier requests
+     * @param count number of commands
+     * @return the commands in the order they are due
+     */
+    private List<JSONObject> commands(int count) {
+        Random random = new Random(seed + 1);
+        List<JSONObject> commands = new ArrayList<JSONObject>(count);
+
+        for (int i = 0; i < count; i++) {
+            double pick = random.nextDouble();
+            String earlier = "load" + random.nextInt(Math.max(1, i));
+
+            if (pick < 0.1) {
+                JSONObject list = new JSONObject();
+                list.put("command", "list");
+                list.put("venue", "Venue" + random.nextInt(venues));
+                commands.add(list);
+            } else if (pick < 0.15) {
+                commands.add(booking("change", earlier, random));
+            } else if (pick < 0.2) {
+                JSONObject cancel = new JSONObject();
+                cancel.put("command", "cancel");
+                cancel.put("id", earlier);
+                commands.add(cancel);
+            } else {
+                commands.add(booking("request", "load" + i, random));
+            }
+        }
+
+        return commands;
+    }
+
+    /**
+     * Times the command stream sent one command after another to a shard of
+     * its own, once to warm up and once for the timing
+     * @return commands per second the shard can serve
+     */
+    private double calibrate() throws IOException {
+        double served = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            ShardServer shard = startShard();
+            try (ShardConnection connection = new ShardConnection("localhost", shard.getPort())) {
+                fill(connection);
+                List<JSONObject> commands = commands(4000);
+
+                long began = System.nanoTime();
+                for (JSONObject command : commands) {
+                    connection.call(command);
+                }
+                served = commands.size() / ((System.nanoTime() - began) / 1e9);
+            } finally {
+                shard.close();
+            }
+        }
+
+        return served;
+    }
+
+    /**
+     * Offers commands at a fixed rate from the client threads, each sending
+     * on a connection no other thread is using, and records each one's
+     * latency from when it was due
+     * @param rate commands per second to offer
+     */
+    private void drive(double rate) throws IOException, InterruptedException {
+        ShardServer shard = startShard();
+        BlockingQueue<ShardConnection> connections = new ArrayBlockingQueue<ShardConnection>(clients);
+        for (int i = 0; i < clients; i++) {
+            connections.add(new ShardConnection("localhost", shard.getPort()));
+        }
+        fill(connections.peek());
+
+        List<JSONObject> commands = commands((int) (rate * (warmup + seconds)));
+        for (String type : new String[] {"request", "change", "cancel", "list"}) {
+            latencies.put(type, new LatencyHistogram());
+            busy.put(type, new AtomicInteger());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients, r -> {
+            Thread thread = new Thread(r, "saturation-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = (long) (1e9 / rate);
+        long began = System.nanoTime();
+        long recorded = began + TimeUnit.SECONDS.toNanos(warmup);
+
+        for (int i = 0; i < commands.size(); i++) {
+            JSONObject command = commands.get(i);
+            long due = began + i * interval;
+
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            pool.execute(() -> {
+                //there are as many connections as client threads
+                ShardConnection connection = connections.poll();
+                String output;
+                try {
+                    output = connection.call(command).optString("output", null);
+                } finally {
+                    connections.add(connection);
+                }
+                long latency = System.nanoTime() - due;
+                String type = command.getString("command");
+                if (due < recorded) {
+                    return;
+                }
+
+                if (output != null && output.contains("\"busy\"")) {
+                    busy.get(type).incrementAndGet();
+                }
+                synchronized (all) {
+                    all.record(latency);
+                    latencies.get(type).record(latency);
+                }
+            });
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        for (ShardConnection connection : connections) {
+            connection.close();
+        }
+        shard.close();
+    }
+
+    /**
+     * Prints a row of the latency table in milliseconds
+     */
+    private static void print(String type, LatencyHistogram h, int shed) {
+        System.out.printf("%-10s %8d %8d %10.1f %10.1f %10.1f %10.1f%n", type, h.count(), shed,
+            h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.percentile(99.9) / 1e6, h.percentile(100) / 1e6);
+    }
+
+    /**
+     * Reads the command line options
+     * @param args options as listed in the class comment
+     * @return a harness set up with them
+     */
+    static SaturationHarness fromArgs(String[] args) {
+        SaturationHarness harness = new SaturationHarness();
+
+        for (int i = 0; i < args.length; i += 2) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--seconds": harness.seconds = Integer.parseInt(value); break;
+                case "--warmup": harness.warmup = Integer.parseInt(value); break;
+                case "--overload": harness.overload = Double.parseDouble(value); break;
+                case "--deadline": harness.deadline = Long.parseLong(value); break;
+                case "--capacity": harness.capacity = Integer.parseInt(value); break;
+                case "--max-p99": harness.maxP99 = Long.parseLong(value); break;
+                case "--clients": harness.clients = Integer.parseInt(value); break;
+                case "--venues": harness.venues = Integer.parseInt(value); break;
+                case "--seed": harness.seed = Long.parseLong(value); break;
+                case "--fifo": harness.fifo = true; i--; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (harness.maxP99 < 0) {
+            harness.maxP99 = 2 * harness.deadline;
+        }
+
+        return harness;
+    }
+
+    /**
+     * Gets the largest p99 latency a run may have and still pass
+     * @return the limit in milliseconds
+     */
+    long maxP99() {
+        return maxP99;
+    }
+
+    /**
+     * Calibrates, offers the overload and prints the latency table
+     * @return p99 latency of all recorded commands in milliseconds
+     */
+    double run() throws IOException, InterruptedException {
+        double served = calibrate();
+        double rate = served * overload;
+        System.out.printf("%s, serves %.0f commands/s, offering %.0f commands/s for %d + %d s%n",
+            fifo ? "shard without admission control" : "shard with " + deadline + " ms deadline",
+            served, rate, warmup, seconds);
+
+        drive(rate);
+
+        System.out.printf("%-10s %8s %8s %10s %10s %10s %10s  (ms)%n",
+            "command", "count", "busy", "p50", "p99", "p99.9", "max");
+        int shed = 0;
+        for (Map.Entry<String, LatencyHistogram> e : latencies.entrySet()) {
+            int b = busy.get(e.getKey()).get();
+            shed = shed + b;
+            print(e.getKey(), e.getValue(), b);
+        }
+        print("all", all, shed);
+
+        return all.percentile(99) / 1e6;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SaturationHarness harness = fromArgs(args);
+        double p99 = harness.run();
+
+        if (!harness.fifo) {
+            if (p99 > harness.maxP99) {
+                System.out.printf("FAILED: p99 %.1f ms is over %d ms%n", p99, harness.maxP99);
+                System.exit(1);
+            }
+            System.out.printf("p99 %.1f ms is within %d ms%n", p99, harness.maxP99);
+        }
+    }
+}
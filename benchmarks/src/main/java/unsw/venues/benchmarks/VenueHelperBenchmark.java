@@ -0,0 +1,172 @@
+package unsw.venues.benchmarks;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unsw.venues.ResultWriter;
+import unsw.venues.VenueHelper;
+
+/**
+ * Benchmarks the system wide request, change, list and report paths.
+ *
+ * Every venue except the last is filled on the middle gap, so an accepted
+ * request has to scan all venues before it lands in the last one.
+ * @author Frank Merriman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VenueHelperBenchmark {
+    @Param({"1", "10", "50"})
+    public int venueCount;
+
+    @Param({"6", "30"})
+    public int roomsPerVenue;
+
+    @Param({"10", "100"})
+    public int bookingsPerRoom;
+
+    /** small/medium/large rooms in each request */
+    @Param({"1/0/0", "1/1/1", "2/2/2"})
+    public String mix;
+
+    private VenueHelper helper;
+    private String lastVenue;
+    private ResultWriter writer = new ResultWriter();
+    private CharArrayWriter sink = new CharArrayWriter();
+    private LocalDate freeStart;
+    private LocalDate freeEnd;
+    private LocalDate otherStart;
+    private LocalDate otherEnd;
+    private LocalDate takenStart;
+    private LocalDate takenEnd;
+    private int small;
+    private int medium;
+    private int large;
+    private boolean moved;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        helper = Fixtures.venueHelper(venueCount, roomsPerVenue, bookingsPerRoom);
+        lastVenue = Fixtures.venueName(venueCount - 1);
+
+        int middle = (bookingsPerRoom - 1) / 2;
+        freeStart = Fixtures.gapStart(middle);
+        freeEnd = Fixtures.gapEnd(middle);
+        otherStart = Fixtures.gapStart(middle - 1);
+        otherEnd = Fixtures.gapEnd(middle - 1);
+        takenStart = Fixtures.bookedStart(middle);
+        takenEnd = takenStart.plusDays(1);
+
+        for (int v = 0; v < venueCount - 1; v++) {
+            helper.addBooking("fill" + v, freeStart, freeEnd,
+                Fixtures.roomsOfSize(roomsPerVenue, 0),
+                Fixtures.roomsOfSize(roomsPerVenue, 1),
+                Fixtures.roomsOfSize(roomsPerVenue, 2));
+        }
+
+        int[] counts = Fixtures.parseMix(mix);
+        small = counts[0];
+        medium = counts[1];
+        large = counts[2];
+
+        helper.addBooking("moving", freeStart, freeEnd, small, medium, large);
+        moved = false;
+    }
+
+    /**
+     * Cancels the booking made by addBookingAccepted after each invocation so every
+     * invocation sees the same calendars
+     */
+    @State(Scope.Thread)
+    public static class NewBooking {
+        @TearDown(Level.Invocation)
+        public void remove(VenueHelperBenchmark bench) {
+            bench.helper.removeBooking("new");
+        }
+    }
+
+    @Benchmark
+    public JSONObject addBookingAccepted(NewBooking newBooking) {
+        return helper.addBooking("new", freeStart, freeEnd, small, medium, large);
+    }
+
+    @Benchmark
+    public JSONObject addBookingRejected() {
+        return helper.addBooking("new", takenStart, takenEnd, small, medium, large);
+    }
+
+    /**
+     * Moves the "moving" booking between the middle gap of the last venue and
+     * the previous gap of the first venue, alternating on each invocation
+     */
+    @Benchmark
+    public JSONObject changeBooking() {
+        moved = !moved;
+        if (moved) {
+            return helper.changeBooking("moving", otherStart, otherEnd, small, medium, large);
+        }
+        return helper.changeBooking("moving", freeStart, freeEnd, small, medium, large);
+    }
+
+    @Benchmark
+    public JSONArray listRooms() {
+        return helper.listRooms(lastVenue);
+    }
+
+    @Benchmark
+    public String listRoomsRendered() {
+        return helper.listRooms(lastVenue).toString(2);
+    }
+
+    @Benchmark
+    public String listRoomsWritten() {
+        return helper.writeRooms(lastVenue, writer);
+    }
+
+    /**
+     * Lists the last venue onto a reused writer, as the command loop does
+     * with -Dvenues.serializer=direct
+     */
+    @Benchmark
+    public int listRoomsStreamed() throws IOException {
+        sink.reset();
+        helper.writeRooms(lastVenue, writer, sink);
+        return sink.size();
+    }
+
+    /**
+     * Reports a year of daily utilization for every venue from the
+     * occupancy counters
+     */
+    @Benchmark
+    public JSONArray reportYear() {
+        return helper.report(Fixtures.BASE, Fixtures.BASE.plusDays(364));
+    }
+
+    @Benchmark
+    public String reportYearRendered() {
+        return helper.report(Fixtures.BASE, Fixtures.BASE.plusDays(364)).toString(2);
+    }
+}
@@ -0,0 +1,157 @@
+package unsw.venues.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic command streams in the same JSON lines format as
+ * sample_input.json. The same seed and options always produce the same stream.
+ *
+ * All room commands come first, followed by a mix of request, change,
+ * cancel and list commands. Start dates are drawn from [base, base + days)
+ * with a skew exponent: 1 is uniform, larger values crowd bookings towards
+ * the start of the horizon. With a repeat rate, that fraction of requests
+ * copy the dates and room counts of the request before them, giving bursts
+ * of identical requests.
+ *
+ * Usage: WorkloadGenerator [--seed n] [--commands n] [--venues n]
+ * [--rooms n] [--days n] [--skew x] [--cancel-rate x] [--change-rate x]
+ * [--list-rate x] [--repeat-rate x] [--out file]
+ * @author Frank Merriman
+ */
+public class WorkloadGenerator {
+    private static final String[] SIZES = {"small", "medium", "large"};
+
+    private long seed = 1;
+    private long commands = 1_000_000;
+    private int venues = 20;
+    private int rooms = 12;
+    private int days = 365;
+    private double skew = 1.5;
+    private double cancelRate = 0.1;
+    private double changeRate = 0.1;
+    private double listRate = 0.01;
+    private double repeatRate = 0;
+    private LocalDate base = LocalDate.of(2020, 1, 1);
+    private String lastShape;
+
+    /**
+     * Writes the whole command stream
+     * @param out destination for the JSON lines
+     */
+    public void generate(PrintWriter out) {
+        Random random = new Random(seed);
+
+        for (int v = 0; v < venues; v++) {
+            for (int r = 0; r < rooms; r++) {
+                out.printf("{ \"command\": \"room\", \"venue\": \"Venue%d\", \"room\": \"Room%d-%d\", \"size\": \"%s\" }\n",
+                    v, v, r, SIZES[random.nextInt(SIZES.length)]);
+            }
+        }
+
+        // ids that have been requested and not yet cancelled, accepted or not
+        List<String> live = new ArrayList<String>();
+        long nextID = 0;
+
+        for (long i = 0; i < commands; i++) {
+            double pick = random.nextDouble();
+
+            if (pick < listRate) {
+                out.printf("{ \"command\": \"list\", \"venue\": \"Venue%d\" }\n", random.nextInt(venues));
+            } else if (pick < listRate + cancelRate && !live.isEmpty()) {
+                String id = removeRandom(live, random);
+                out.printf("{ \"command\": \"cancel\", \"id\": \"%s\" }\n", id);
+            } else if (pick < listRate + cancelRate + changeRate && !live.isEmpty()) {
+                String id = live.get(random.nextInt(live.size()));
+                printBooking(out, "change", id, random);
+            } else {
+                String id = "B" + nextID;
+                nextID = nextID + 1;
+                live.add(id);
+                if (repeatRate > 0 && lastShape != null && random.nextDouble() < repeatRate) {
+                    out.printf("{ \"command\": \"request\", \"id\": \"%s\", %s }\n", id, lastShape);
+                } else {
+                    printBooking(out, "request", id, random);
+                }
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Prints a request or change command with random dates and room counts.
+     * At least one room is always requested.
+     */
+    private void printBooking(PrintWriter out, String command, String id, Random random) {
+        LocalDate start = base.plusDays((long) (days * Math.pow(random.nextDouble(), skew)));
+        LocalDate end = start.plusDays(random.nextInt(7));
+        int small = random.nextInt(3);
+        int medium = random.nextInt(2);
+        int large = random.nextInt(2);
+        if (small + medium + large == 0) {
+            small = 1;
+        }
+
+        lastShape = String.format("\"start\": \"%s\", \"end\": \"%s\", \"small\": %d, \"medium\": %d, \"large\": %d",
+            start, end, small, medium, large);
+        out.printf("{ \"command\": \"%s\", \"id\": \"%s\", %s }\n", command, id, lastShape);
+    }
+
+    /**
+     * Removes a random element in constant time by swapping in the last element
+     */
+    private static String removeRandom(List<String> list, Random random) {
+        int index = random.nextInt(list.size());
+        String picked = list.get(index);
+        String last = list.remove(list.size() - 1);
+        if (index < list.size()) {
+            list.set(index, last);
+        }
+        return picked;
+    }
+
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        String outFile = null;
+
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seed": generator.seed = Long.parseLong(value); break;
+                case "--commands": generator.commands = Long.parseLong(value); break;
+                case "--venues": generator.venues = Integer.parseInt(value); break;
+                case "--rooms": generator.rooms = Integer.parseInt(value); break;
+                case "--days": generator.days = Integer.parseInt(value); break;
+                case "--skew": generator.skew = Double.parseDouble(value); break;
+                case "--cancel-rate": generator.cancelRate = Double.parseDouble(value); break;
+                case "--change-rate": generator.changeRate = Double.parseDouble(value); break;
+                case "--list-rate": generator.listRate = Double.parseDouble(value); break;
+                case "--repeat-rate": generator.repeatRate = Double.parseDouble(value); break;
+                case "--out": outFile = value; break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        Writer writer;
+        if (outFile == null) {
+            writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        } else {
+            writer = Files.newBufferedWriter(Paths.get(outFile), StandardCharsets.UTF_8);
+        }
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(writer, 1 << 16))) {
+            generator.generate(out);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package unsw.venues.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs a short SaturationHarness overload against a ShardServer with an
+ * admission deadline and fails the build if p99 latency goes over twice the
+ * deadline
+ * @author Frank Merriman
+ */
+class SaturationHarnessIT {
+
+    @Test
+    void schedulerKeepsP99WithinTwiceTheDeadline() throws IOException, InterruptedException {
+        //the default clients and venues; fewer clients would queue behind each other
+        SaturationHarness harness = SaturationHarness.fromArgs(new String[] {
+            "--seconds", "2", "--warmup", "1", "--overload", "2", "--deadline", "50"});
+
+        double p99 = harness.run();
+
+        assertTrue(p99 <= harness.maxP99(),
+            String.format("p99 %.1f ms is over %d ms", p99, harness.maxP99()));
+    }
+}
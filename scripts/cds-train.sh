@@ -0,0 +1,29 @@
+#!/bin/sh
+# Builds an AppCDS archive of the classes VenueHireSystem loads, by running
+# it once over the sample inputs and dumping what was loaded at exit.
+# Later runs map the archive instead of loading and verifying those classes:
+#
+#   java -XX:SharedArchiveFile=target/venues.jsa \
+#       -cp target/venue-hire-system-1.0-SNAPSHOT.jar:lib/json.jar \
+#       unsw.venues.VenueHireSystem < input.json
+#
+# The archive only matches the jars and JDK it was made with, so run this
+# again after every mvn package. Needs JDK 13 or later.
+#
+# Usage: scripts/cds-train.sh [archive]
+set -e
+
+ARCHIVE=${1:-target/venues.jsa}
+CP=target/venue-hire-system-1.0-SNAPSHOT.jar:lib/json.jar
+
+# the sample inputs plus every other command type, so the archive covers the
+# classes behind each of them; awk ends each file with a newline
+awk 1 sample_input.json test1_input.json test2_input.json test3_input.json - > target/cds-training.json <<'COMMANDS'
+{ "command": "recurring", "id": "cds-recurring", "start": "2019-01-07", "end": "2019-01-07", "every": 7, "count": 4, "small": 1, "medium": 0, "large": 0 }
+{ "command": "report", "start": "2019-01-01", "end": "2019-01-31" }
+{ "command": "stats" }
+COMMANDS
+
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$CP" unsw.venues.VenueHireSystem \
+    < target/cds-training.json > /dev/null
+echo "wrote $ARCHIVE"
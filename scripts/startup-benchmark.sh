@@ -0,0 +1,71 @@
+#!/bin/sh
+# Measures how long VenueHireSystem takes from launch to its first line of
+# output, and to exit, over a number of runs, with and without the AppCDS
+# archive made by scripts/cds-train.sh.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [input]
+# Defaults to 20 runs over sample_input.json. Run from the project root
+# after mvn package. Setting CP times another build instead, such as an
+# older commit compiled with javac; the archived runs are skipped then
+# unless ARCHIVE names an archive made for that classpath.
+#
+# Times come from date +%s%N where it prints nanoseconds (GNU date) and
+# from perl's Time::HiRes otherwise (BSD and macOS date print a literal N).
+# The perl clock adds its own start-up, a few milliseconds, to each time.
+set -e
+
+RUNS=${1:-20}
+INPUT=${2:-sample_input.json}
+if [ -n "$CP" ] && [ -z "$ARCHIVE" ]; then
+    ARCHIVE=none
+fi
+CP=${CP:-target/venue-hire-system-1.0-SNAPSHOT.jar:lib/json.jar}
+ARCHIVE=${ARCHIVE:-target/venues.jsa}
+
+# prints the time in nanoseconds
+if date +%s%N | grep -q '^[0-9][0-9]*$'; then
+    now() {
+        date +%s%N
+    }
+elif command -v perl > /dev/null 2>&1; then
+    now() {
+        perl -MTime::HiRes=time -e 'printf "%.0f\n", time * 1e9'
+    }
+else
+    echo "needs GNU date or perl for a clock finer than a second" >&2
+    exit 1
+fi
+
+# prints "first exit" in milliseconds for one run of java with the given options
+run_once() {
+    start=$(now)
+    first=$( { java "$@" -cp "$CP" unsw.venues.VenueHireSystem < "$INPUT"; } \
+        | { IFS= read -r line; now; cat > /dev/null; } )
+    end=$(now)
+    echo "$(( (first - start) / 1000000 )) $(( (end - start) / 1000000 ))"
+}
+
+# prints the median first-result and exit times over RUNS runs
+measure() {
+    label=$1
+    shift
+    i=0
+    : > /tmp/venues-startup.$$
+    while [ $i -lt "$RUNS" ]; do
+        run_once "$@" >> /tmp/venues-startup.$$
+        i=$((i + 1))
+    done
+
+    first=$(cut -d' ' -f1 /tmp/venues-startup.$$ | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    total=$(cut -d' ' -f2 /tmp/venues-startup.$$ | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    rm -f /tmp/venues-startup.$$
+    printf '%-28s first result %5s ms   exit %5s ms\n' "$label" "$first" "$total"
+}
+
+measure "default" -Xshare:auto
+if [ -f "$ARCHIVE" ]; then
+    measure "appcds" -XX:SharedArchiveFile="$ARCHIVE"
+    measure "appcds, serial gc, c1" -XX:SharedArchiveFile="$ARCHIVE" -XX:+UseSerialGC -XX:TieredStopAtLevel=1
+else
+    echo "no $ARCHIVE, run scripts/cds-train.sh for the archived runs"
+fi
@@ -0,0 +1,19 @@
+#!/bin/sh
+# Starts VenueHireSystem tuned for short runs: it maps the AppCDS archive
+# from scripts/cds-train.sh when there is one, uses the serial collector and
+# compiles with C1 only. Long replays are better off with the default JVM
+# flags. Extra JVM options can be passed in JAVA_OPTS, and arguments are
+# passed on to VenueHireSystem.
+#
+# Usage: scripts/venues.sh [--local-shards n | --shards host:port,...] < input.json
+DIR=$(cd "$(dirname "$0")/.." && pwd)
+CP="$DIR/target/venue-hire-system-1.0-SNAPSHOT.jar:$DIR/lib/json.jar"
+ARCHIVE="$DIR/target/venues.jsa"
+
+SHARE=
+if [ -f "$ARCHIVE" ]; then
+    SHARE="-XX:SharedArchiveFile=$ARCHIVE"
+fi
+
+exec java $SHARE -XX:+UseSerialGC -XX:TieredStopAtLevel=1 $JAVA_OPTS \
+    -cp "$CP" unsw.venues.VenueHireSystem "$@"
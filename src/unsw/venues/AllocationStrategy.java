@@ -0,0 +1,52 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Decides which of a venue's free rooms are used to serve a booking request
+ * @author Frank Merriman
+ */
+public interface AllocationStrategy {
+
+    /**
+     * Chooses rooms to serve a booking request. Only rooms free on the
+     * requested dates are chosen, and never more of a size than requested.
+     * If the venue is short of free rooms the choice holds fewer rooms than
+     * requested.
+     * @param rooms rooms of the venue in the order they were added
+     * @param ID interned handle of the bookingID of the request, its own bookings do not block it
+     * @param start first day of the booking
+     * @param end last day of the booking
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return chosen rooms in the order they were added to the venue
+     */
+    List<Room> selectRooms(List<Room> rooms, int ID, LocalDate start, LocalDate end,
+        int small, int medium, int large);
+
+    /**
+     * Looks up a strategy by name
+     * @param name one of first-fit, best-fit
+     * @return the named strategy
+     */
+    static AllocationStrategy named(String name) {
+        switch (name) {
+            case "first-fit":
+                return new FirstFitStrategy();
+            case "best-fit":
+                return new BestFitStrategy();
+            default:
+                throw new IllegalArgumentException("unknown allocation strategy " + name);
+        }
+    }
+
+    /**
+     * Gets the strategy chosen with -Dvenues.allocation, first-fit by default
+     * @return the configured strategy
+     */
+    static AllocationStrategy configured() {
+        return named(System.getProperty("venues.allocation", "first-fit"));
+    }
+}
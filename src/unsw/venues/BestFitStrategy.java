@@ -0,0 +1,73 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Takes the free rooms of each size whose neighbouring bookings sit closest
+ * to the requested dates, leaving longer gaps in other rooms for later
+ * requests. Ties go to the room added to the venue first.
+ * @author Frank Merriman
+ */
+public class BestFitStrategy implements AllocationStrategy {
+
+    @Override
+    public List<Room> selectRooms(List<Room> rooms, int ID, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        int[] wanted = RoomSize.counts(small, medium, large);
+        List<Candidate> candidates = new ArrayList<Candidate>();
+
+        for (int i = 0; i < rooms.size(); i++) {
+            Room r = rooms.get(i);
+            if (wanted[r.getSize().ordinal()] == 0) {
+                continue;
+            }
+
+            int slack = r.slackAround(ID, start, end);
+            if (slack >= 0) {
+                candidates.add(new Candidate(i, r, slack));
+            }
+        }
+
+        //sort is stable, so rooms with equal slack stay in venue order
+        candidates.sort(Comparator.comparingInt(c -> c.slack));
+
+        List<Candidate> picked = new ArrayList<Candidate>();
+        int[] taken = new int[wanted.length];
+
+        for (Candidate c : candidates) {
+            int size = c.room.getSize().ordinal();
+            if (taken[size] < wanted[size]) {
+                picked.add(c);
+                taken[size] = taken[size] + 1;
+            }
+        }
+
+        picked.sort(Comparator.comparingInt(c -> c.index));
+
+        List<Room> chosen = new ArrayList<Room>();
+        for (Candidate c : picked) {
+            chosen.add(c.room);
+        }
+
+        return chosen;
+    }
+
+    /**
+     * A free room along with its position in the venue and how much room
+     * to spare it would have around the booking
+     */
+    private static class Candidate {
+        private final int index;
+        private final Room room;
+        private final int slack;
+
+        Candidate(int index, Room room, int slack) {
+            this.index = index;
+            this.room = room;
+            this.slack = slack;
+        }
+    }
+}
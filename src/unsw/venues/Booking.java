@@ -9,36 +9,44 @@ import org.json.JSONObject;
  * @author Frank Merriman
  */
 public class Booking {
-    private String bookingID;
+    private int bookingID;
     private LocalDate start;
     private LocalDate end;
 
     /**
      * Constructor for Booking class
-     * @param bookingID unique name associated with booking
+     * @param bookingID interned handle of the unique name associated with booking
      * @param start start date for room bookings
      * @param end end date for room bookings
      */
-    public Booking (String bookingID, LocalDate start, LocalDate end) {
+    public Booking (int bookingID, LocalDate start, LocalDate end) {
         this.bookingID = bookingID;
         this.start = start;
         this.end = end;
     }
 
     /**
-     * Compares a given string ID to the bookings own ID
+     * Compares a given ID to the bookings own ID
      * The comparison is case sensitive
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @return true if variable ID is the same as the bookings ID otherwise false
      */
-    public boolean compareBookingID(String ID) {
-        if (bookingID.equals(ID)) {
+    public boolean compareBookingID(int ID) {
+        if (bookingID == ID) {
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Gets the bookingID of the booking
+     * @return interned handle of the bookingID
+     */
+    public int getID() {
+        return bookingID;
+    }
+
     /**
      * Gets the start date of the booking
      * @return start date of booking
@@ -61,11 +69,33 @@ public class Booking {
      * @return JSONObject containting booking details
      */
     public JSONObject bookingDetails() {
+        return bookingDetails(bookingID, start, end);
+    }
+
+    /**
+     * Creates a JSONObject containing a bookingID, start date and end date
+     * @param ID interned handle of the bookingID
+     * @param start start date of the booking
+     * @param end end date of the booking
+     * @return JSONObject containting booking details
+     */
+    public static JSONObject bookingDetails(int ID, LocalDate start, LocalDate end) {
+        return bookingDetails(Identifiers.name(ID), start, end);
+    }
+
+    /**
+     * Creates a JSONObject containing a bookingID, start date and end date
+     * @param id the bookingID
+     * @param start start date of the booking
+     * @param end end date of the booking
+     * @return JSONObject containting booking details
+     */
+    public static JSONObject bookingDetails(String id, LocalDate start, LocalDate end) {
         JSONObject details = new JSONObject();
 
-        details.put("id", bookingID);
-        details.put("start", start.toString());
-        details.put("end", end.toString());
+        details.put("id", id);
+        details.put("start", IsoDates.format(start));
+        details.put("end", IsoDates.format(end));
 
         return details;
     }
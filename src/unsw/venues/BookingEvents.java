@@ -0,0 +1,163 @@
+package unsw.venues;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events emitted by VenueHelper. They cost next to
+ * nothing unless a recording is running, e.g. with
+ * -XX:StartFlightRecording=filename=venues.jfr
+ *
+ * Initializing the first jdk.jfr.Event class starts up the whole flight
+ * recorder, which takes longer than a short run of the system. So VenueHelper
+ * fills in plain Operation objects, and each one only creates its flight
+ * recorder event once the recorder is already running, whether it was
+ * started on the command line or later through jcmd.
+ *
+ * Scan counts cover the availability search only: venues are scanned in
+ * order until one can serve the request, and every room of a scanned venue
+ * is checked.
+ * @author Frank Merriman
+ */
+public final class BookingEvents {
+
+    private BookingEvents() {
+    }
+
+    /**
+     * Fields shared by every booking operation, with the same begin,
+     * commit and shouldCommit calls as a flight recorder event
+     */
+    abstract static class Operation {
+        String bookingID;
+        String venue;
+        int venuesScanned;
+        int roomsScanned;
+        boolean accepted;
+
+        private Recorded recorded;
+
+        /**
+         * Creates the flight recorder event this operation is written to
+         * @return a new event of the operation's type
+         */
+        abstract Recorded record();
+
+        /**
+         * Starts timing the operation if the flight recorder is running
+         */
+        void begin() {
+            if (FlightRecorder.isInitialized()) {
+                recorded = record();
+                recorded.begin();
+            }
+        }
+
+        /**
+         * Checks if the operation's event is being recorded
+         * @return true if a recording has the event enabled
+         */
+        boolean isEnabled() {
+            return recorded != null && recorded.isEnabled();
+        }
+
+        /**
+         * Checks if the operation would be written when committed
+         * @return true if the event is enabled and passes its threshold
+         */
+        boolean shouldCommit() {
+            return recorded != null && recorded.shouldCommit();
+        }
+
+        /**
+         * Writes the operation to the recording, if it is being recorded
+         */
+        void commit() {
+            if (shouldCommit()) {
+                recorded.bookingID = bookingID;
+                recorded.venue = venue;
+                recorded.venuesScanned = venuesScanned;
+                recorded.roomsScanned = roomsScanned;
+                recorded.accepted = accepted;
+                recorded.commit();
+            }
+        }
+    }
+
+    public static class AddBooking extends Operation {
+        @Override
+        Recorded record() {
+            return new RecordedAddBooking();
+        }
+    }
+
+    public static class ChangeBooking extends Operation {
+        @Override
+        Recorded record() {
+            return new RecordedChangeBooking();
+        }
+    }
+
+    public static class RemoveBooking extends Operation {
+        @Override
+        Recorded record() {
+            return new RecordedRemoveBooking();
+        }
+    }
+
+    public static class ListRooms extends Operation {
+        @Override
+        Recorded record() {
+            return new RecordedListRooms();
+        }
+    }
+
+    /**
+     * Flight recorder event holding an Operation's fields
+     */
+    abstract static class Recorded extends Event {
+        @Label("Booking ID")
+        String bookingID;
+
+        @Label("Venue")
+        @Description("Venue picked for the booking, or the venue holding it")
+        String venue;
+
+        @Label("Venues Scanned")
+        int venuesScanned;
+
+        @Label("Rooms Scanned")
+        int roomsScanned;
+
+        @Label("Accepted")
+        boolean accepted;
+    }
+
+    @Name("unsw.venues.AddBooking")
+    @Label("Add Booking")
+    @Category("Venue Hire")
+    static class RecordedAddBooking extends Recorded {
+    }
+
+    @Name("unsw.venues.ChangeBooking")
+    @Label("Change Booking")
+    @Category("Venue Hire")
+    static class RecordedChangeBooking extends Recorded {
+    }
+
+    @Name("unsw.venues.RemoveBooking")
+    @Label("Remove Booking")
+    @Category("Venue Hire")
+    static class RecordedRemoveBooking extends Recorded {
+    }
+
+    @Name("unsw.venues.ListRooms")
+    @Label("List Rooms")
+    @Category("Venue Hire")
+    static class RecordedListRooms extends Recorded {
+    }
+}
@@ -1,6 +1,7 @@
 package unsw.venues;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,6 +15,7 @@ import java.util.Iterator;
  */
 public class BookingHelper {
     private List<Booking> bookings;
+    private List<BookingSeries> series;
 
     /**
      * Constructor for BookingHelper
@@ -21,6 +23,7 @@ public class BookingHelper {
      */
     public BookingHelper() {
         bookings = new ArrayList<Booking>();
+        series = new ArrayList<BookingSeries>();
     }
 
 
@@ -28,75 +31,47 @@ public class BookingHelper {
      * Insert a new Booking into BookingHelpers list of bookings.
      * Booking is inserted into an ordered list, which is sorted by order
      * of start date
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @param start start date of booking
      * @param end end date of booking
      */
-    public void addBooking(String ID, LocalDate start, LocalDate end) {
+    public void addBooking(int ID, LocalDate start, LocalDate end) {
         Booking newBooking = new Booking(ID, start, end);
-        Iterator<Booking> bookingItr = bookings.listIterator();
 
-        //Empty List case
-        if (bookings.size() == 0) {
-            bookings.add(newBooking);
-            return;
-        }
-
-        Booking curr = bookingItr.next();
-        LocalDate currStart = curr.getStartDate();
-        LocalDate currEnd = curr.getEndDate();
-        int indexCurr = bookings.indexOf(curr);
-
-        //case for only 1 item in list
-        if (bookings.size() == 1) {
-            if (end.isBefore(currStart)) {
-                bookings.add(0, newBooking);
-                return;
-            } else if (start.isAfter(currEnd)) {
-                bookings.add(newBooking);
-                return;
+        //insert after any booking starting on or before the new one
+        int low = 0;
+        int high = bookings.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bookings.get(mid).getStartDate().isAfter(start)) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
         }
 
-        while (bookingItr.hasNext()) {
-            Booking next = bookingItr.next();
-            LocalDate nextStart = next.getStartDate();
-            
-            int indexNext = bookings.indexOf(next);
-
-            if (indexCurr == 0) {
-                if (end.isBefore(currStart)) {
-                    bookings.add(0, newBooking);
-                    return;
-                }
-            }
-            
-            if (indexCurr == (bookings.size() - 1)) {
-                if (start.isAfter(currEnd)) {
-                    bookings.add(newBooking);
-                    return;
-                }
-            }
-
-            //inserts between curr and next
-            if (start.isAfter(currEnd) && end.isBefore(nextStart)) {
-                bookings.add(indexNext, newBooking);
-                return;
-            }
+        bookings.add(low, newBooking);
+    }
 
-            curr = next;
-            currStart = nextStart;
-            currEnd = next.getEndDate();
-            indexCurr = bookings.indexOf(curr);
-        }
-        return;
+    /**
+     * Adds a recurring booking. Only the rule is kept, occurrences are not
+     * stored one by one.
+     * @param ID interned handle of the unique bookingID of a reservation
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     */
+    public void addSeries(int ID, LocalDate start, LocalDate end, int period, int count) {
+        series.add(new BookingSeries(ID, start, end, period, count));
     }
 
     /**
      * Remove all bookings with matching ID from booking helpers room
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
+     * @return true if a booking was removed, otherwise false
      */
-    public void removeBooking(String ID){
+    public boolean removeBooking(int ID){
         Iterator<Booking> bookingItr = bookings.iterator();
 
         while (bookingItr.hasNext()) {
@@ -104,23 +79,42 @@ public class BookingHelper {
 
             if (curr.compareBookingID(ID)) {
                 bookingItr.remove();
-                return;
+                return true;
+            }
+        }
+
+        Iterator<BookingSeries> seriesItr = series.iterator();
+
+        while (seriesItr.hasNext()) {
+            BookingSeries curr = seriesItr.next();
+
+            if (curr.compareBookingID(ID)) {
+                seriesItr.remove();
+                return true;
             }
         }
+
+        return false;
     }
 
     /**
      * Checks if ID is unique amongst all bookingID's in bookings
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @return false if any bookingID in bookings matches ID, else true
      */
-    public boolean uniqueID(String ID) {
+    public boolean uniqueID(int ID) {
         for (Booking b : bookings) {
             if (b.compareBookingID(ID)) {
                 return false;
             }
         }
 
+        for (BookingSeries s : series) {
+            if (s.compareBookingID(ID)) {
+                return false;
+            }
+        }
+
         return true;
     }
 
@@ -128,66 +122,159 @@ public class BookingHelper {
      * Checks if there would be free time avaliable to make a new booking 
      * with requested start and end dates
      * Assumes dates are always correctly entered with start occuring before end
-     * @param ID unique ID associated with a new booking
+     * @param ID interned handle of the unique ID associated with a new booking
      * @param start
      * @param end
      * @return true if the requested period of time has no bookings already occuring, otherwise false
      */
-    public boolean avaliableSpace(String ID, LocalDate start, LocalDate end) {
-        List<Booking> bookings = removeBookingID(ID);
-        Iterator<Booking> bookingItr = bookings.listIterator();
-        
-        if (bookings.size() == 0) {
-            return true;
-        }
-
-        Booking curr = bookingItr.next();
-        LocalDate currStart = curr.getStartDate();
-        LocalDate currEnd = curr.getEndDate();
-        int index = bookings.indexOf(curr);
-
-        //case for only 1 item in list
-        if (bookings.size() == 1) {
-            if (end.isBefore(currStart) || start.isAfter(currEnd)) {
-                return true;
+    public boolean avaliableSpace(int ID, LocalDate start, LocalDate end) {
+        return slackAround(ID, start, end) >= 0;
+    }
+
+    /**
+     * Measures how tightly a new booking would fit between its neighbours.
+     * Bookings never overlap, so sorting by start also sorts by end and only
+     * the bookings either side of the requested dates need to be looked at.
+     * Bookings with the given ID are ignored, so a booking can be moved over
+     * its own dates.
+     * @param ID interned handle of the unique ID associated with the new booking
+     * @param start first day of the new booking
+     * @param end last day of the new booking
+     * @return number of free days left before and after the booking, with
+     * Integer.MAX_VALUE / 2 counted for an open side, or -1 if the dates
+     * overlap an existing booking
+     */
+    public int slackAround(int ID, LocalDate start, LocalDate end) {
+        //first booking that ends on or after the requested start
+        int low = 0;
+        int high = bookings.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bookings.get(mid).getEndDate().isBefore(start)) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
 
-        while (bookingItr.hasNext()) {
-            Booking next = bookingItr.next();
-            LocalDate nextStart = next.getStartDate();
+        Booking before = neighbour(low - 1, -1, ID);
+        Booking after = neighbour(low, 1, ID);
 
-            if (index == 0) {
-                if (end.isBefore(currStart)) {
-                    return true;
+        if (after != null && !after.getStartDate().isAfter(end)) {
+            return -1;
+        }
+
+        LocalDate beforeEnd = before == null ? null : before.getEndDate();
+        LocalDate afterStart = after == null ? null : after.getStartDate();
+
+        //the nearest occurrences of each series can be closer neighbours
+        for (BookingSeries s : series) {
+            if (s.compareBookingID(ID)) {
+                continue;
+            }
+
+            int k = s.latestStartingBy(end);
+            if (k >= 0) {
+                LocalDate occurrenceEnd = s.getEndDate(k);
+                if (!occurrenceEnd.isBefore(start)) {
+                    return -1;
+                }
+                if (beforeEnd == null || occurrenceEnd.isAfter(beforeEnd)) {
+                    beforeEnd = occurrenceEnd;
                 }
             }
-            
-            if (index == (bookings.size() - 1)) {
-                if (start.isAfter(currEnd)) {
-                    return true;
+
+            if (k + 1 < s.getCount()) {
+                LocalDate occurrenceStart = s.getStartDate(k + 1);
+                if (afterStart == null || occurrenceStart.isBefore(afterStart)) {
+                    afterStart = occurrenceStart;
                 }
             }
+        }
 
-            if (start.isAfter(currEnd) && end.isBefore(nextStart)) {
-                return true;
+        long slack = 0;
+        if (beforeEnd == null) {
+            slack = slack + Integer.MAX_VALUE / 2;
+        } else {
+            slack = slack + ChronoUnit.DAYS.between(beforeEnd, start) - 1;
+        }
+
+        if (afterStart == null) {
+            slack = slack + Integer.MAX_VALUE / 2;
+        } else {
+            slack = slack + ChronoUnit.DAYS.between(end, afterStart) - 1;
+        }
+
+        return (int) Math.min(slack, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Checks every occurrence of a recurring booking for space in one pass.
+     * Occurrences are walked in date order alongside the sorted bookings, so
+     * each booking is looked at once however many occurrences there are.
+     * Bookings with the given ID are ignored.
+     * @param ID interned handle of the unique ID associated with the series
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @return true if no occurrence overlaps an existing booking, otherwise false
+     */
+    public boolean seriesSpace(int ID, LocalDate start, LocalDate end, int period, int count) {
+        BookingSeries wanted = new BookingSeries(ID, start, end, period, count);
+        int next = 0;
+
+        for (int k = 0; k < count; k++) {
+            LocalDate from = wanted.getStartDate(k);
+            LocalDate to = wanted.getEndDate(k);
+
+            //bookings ending before this occurrence can't reach later ones either
+            while (next < bookings.size() && bookings.get(next).getEndDate().isBefore(from)) {
+                next = next + 1;
             }
 
-            curr = next;
-            currStart = nextStart;
-            currEnd = next.getEndDate();
-            index = bookings.indexOf(curr);
+            for (int i = next; i < bookings.size() && !bookings.get(i).getStartDate().isAfter(to); i++) {
+                if (!bookings.get(i).compareBookingID(ID)) {
+                    return false;
+                }
+            }
+
+            for (BookingSeries s : series) {
+                if (!s.compareBookingID(ID) && s.overlaps(from, to)) {
+                    return false;
+                }
+            }
         }
 
-        return false;
+        return true;
+    }
+
+    /**
+     * Finds the nearest booking from an index in one direction, skipping
+     * any booking with the given ID
+     * @param index position to start looking from
+     * @param step -1 to look backwards, 1 to look forwards
+     * @param ID interned handle of the bookingID to skip
+     * @return the nearest booking, or null if there is none
+     */
+    private Booking neighbour(int index, int step, int ID) {
+        while (index >= 0 && index < bookings.size()) {
+            Booking b = bookings.get(index);
+            if (!b.compareBookingID(ID)) {
+                return b;
+            }
+            index = index + step;
+        }
+
+        return null;
     }
 
     /**
      * Makes a new list of all bookings not containing a given ID
-     * @param ID unique booking ID
+     * @param ID interned handle of a unique booking ID
      * @return list of bookings associated with this room that don't have ID
      */
-    public List<Booking> removeBookingID(String ID) {
+    public List<Booking> removeBookingID(int ID) {
         List<Booking> reducedList = new ArrayList<Booking>();
 
         for (Booking b : bookings) {
@@ -199,6 +286,83 @@ public class BookingHelper {
         return reducedList;
     }
 
+    /**
+     * Receives bookings one at a time from visitBookings
+     */
+    public interface Visitor {
+
+        /**
+         * Called for each booking, or occurrence of a recurring booking
+         * @param ID interned handle of the bookingID
+         * @param start first day of the booking
+         * @param end last day of the booking
+         */
+        void visit(int ID, LocalDate start, LocalDate end);
+    }
+
+    /**
+     * Gets the number of bookings, counting each occurrence of a recurring
+     * booking separately
+     * @return number of bookings listBookingDetails would list
+     */
+    public int bookingCount() {
+        int count = bookings.size();
+        for (BookingSeries s : series) {
+            count = count + s.getCount();
+        }
+
+        return count;
+    }
+
+    /**
+     * Passes every booking, and every occurrence of a recurring booking, to
+     * a visitor in date order. Occurrences are worked out as they come due
+     * rather than stored.
+     * @param visitor receives each booking
+     */
+    public void visitBookings(Visitor visitor) {
+        if (series.isEmpty()) {
+            for (Booking b : bookings) {
+                visitor.visit(b.getID(), b.getStartDate(), b.getEndDate());
+            }
+
+            return;
+        }
+
+        //merge single bookings with each series' occurrences as they come due
+        int[] next = new int[series.size()];
+        int i = 0;
+        while (true) {
+            LocalDate earliest = i < bookings.size() ? bookings.get(i).getStartDate() : null;
+            int from = -1;
+
+            for (int s = 0; s < next.length; s++) {
+                BookingSeries curr = series.get(s);
+                if (next[s] < curr.getCount()) {
+                    LocalDate due = curr.getStartDate(next[s]);
+                    if (earliest == null || due.isBefore(earliest)) {
+                        earliest = due;
+                        from = s;
+                    }
+                }
+            }
+
+            if (earliest == null) {
+                return;
+            }
+
+            if (from < 0) {
+                Booking b = bookings.get(i);
+                visitor.visit(b.getID(), b.getStartDate(), b.getEndDate());
+                i = i + 1;
+            } else {
+                BookingSeries curr = series.get(from);
+                visitor.visit(curr.getID(), curr.getStartDate(next[from]), curr.getEndDate(next[from]));
+                next[from] = next[from] + 1;
+            }
+        }
+    }
+
     /**
      * Create a JSONArray containing the BookingHelpers bookings details
      * bookings are sorted by date
@@ -206,11 +370,7 @@ public class BookingHelper {
      */
     public JSONArray listBookingDetails() {
         JSONArray bookingDetails = new JSONArray();
-        
-        for (Booking b : bookings) {
-            bookingDetails.put(b.bookingDetails());
-        }
-
+        visitBookings((ID, start, end) -> bookingDetails.put(Booking.bookingDetails(ID, start, end)));
         return bookingDetails;
     }
 
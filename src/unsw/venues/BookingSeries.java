@@ -0,0 +1,136 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A recurring booking in the venue hire system. The same dates repeat every
+ * period days, count times. Only the rule is stored; each occurrence is
+ * worked out from it when needed.
+ *
+ * Checking, booking and counting a series still visits each occurrence, so
+ * a series has at most MAX_COUNT of them, and its last occurrence must end
+ * by LocalDate.MAX.
+ * @author Frank Merriman
+ */
+public class BookingSeries {
+    /**
+     * Most occurrences a series may have: daily for over 27 years, or
+     * weekly for over 190
+     */
+    public static final int MAX_COUNT = 10000;
+
+    private int bookingID;
+    private LocalDate start;
+    private int length;
+    private int period;
+    private int count;
+
+    /**
+     * Constructor for BookingSeries
+     * Occurrences must not overlap, so the period must be longer than the
+     * first occurrence
+     * @param bookingID interned handle of the unique name associated with booking
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     */
+    public BookingSeries(int bookingID, LocalDate start, LocalDate end, int period, int count) {
+        this.bookingID = bookingID;
+        this.start = start;
+        this.length = (int) ChronoUnit.DAYS.between(start, end);
+        this.period = period;
+        this.count = count;
+    }
+
+    /**
+     * Checks that a series could be booked at all: it has between 1 and
+     * MAX_COUNT occurrences, each starts after the one before has ended,
+     * and the last ends no later than LocalDate.MAX
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @return true if the series is allowed, otherwise false
+     */
+    public static boolean isValid(LocalDate start, LocalDate end, int period, int count) {
+        if (count < 1 || count > MAX_COUNT || end.isBefore(start)
+                || period <= ChronoUnit.DAYS.between(start, end)) {
+            return false;
+        }
+
+        //at most MAX_COUNT * Integer.MAX_VALUE days, so this cannot overflow
+        long lastEnd = end.toEpochDay() + (long) (count - 1) * period;
+        return lastEnd <= LocalDate.MAX.toEpochDay();
+    }
+
+    /**
+     * Compares a given ID to the series own ID
+     * @param ID interned handle of the unique bookingID of a reservation
+     * @return true if variable ID is the same as the series ID otherwise false
+     */
+    public boolean compareBookingID(int ID) {
+        return bookingID == ID;
+    }
+
+    /**
+     * Gets the bookingID of the series
+     * @return interned handle of the bookingID
+     */
+    public int getID() {
+        return bookingID;
+    }
+
+    /**
+     * Gets the number of occurrences
+     * @return number of occurrences
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the first day of an occurrence
+     * @param k index of the occurrence, from 0
+     * @return start date of occurrence k
+     */
+    public LocalDate getStartDate(int k) {
+        return start.plusDays((long) k * period);
+    }
+
+    /**
+     * Gets the last day of an occurrence
+     * @param k index of the occurrence, from 0
+     * @return end date of occurrence k
+     */
+    public LocalDate getEndDate(int k) {
+        return start.plusDays((long) k * period + length);
+    }
+
+    /**
+     * Finds the last occurrence starting on or before a date
+     * @param date day to look back from
+     * @return index of the occurrence, or -1 if the series starts after date
+     */
+    public int latestStartingBy(LocalDate date) {
+        long days = ChronoUnit.DAYS.between(start, date);
+        if (days < 0) {
+            return -1;
+        }
+
+        return (int) Math.min(days / period, count - 1);
+    }
+
+    /**
+     * Checks if any occurrence shares a day with the given dates
+     * @param from first day to check
+     * @param to last day to check
+     * @return true if an occurrence overlaps the dates
+     */
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        //occurrences never overlap, so the latest one starting by to ends last
+        int k = latestStartingBy(to);
+        return k >= 0 && !getEndDate(k).isBefore(from);
+    }
+}
@@ -0,0 +1,196 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One committed mutation of a VenueHelper. Events carry their outcome, such
+ * as the exact rooms a booking went to, so applying them in sequence order
+ * rebuilds the same state without repeating any search.
+ * @author Frank Merriman
+ */
+public class ChangeEvent {
+
+    /**
+     * Kinds of mutation
+     */
+    public enum Type {
+        ROOM_ADDED,
+        BOOKED,
+        CANCELLED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String venue;
+    private final String room;
+    private final String size;
+    private final String id;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final List<String> rooms;
+    private final int period;
+    private final int count;
+
+    private ChangeEvent(long sequence, Type type, String venue, String room, String size,
+    String id, LocalDate start, LocalDate end, List<String> rooms, int period, int count) {
+        this.sequence = sequence;
+        this.type = type;
+        this.venue = venue;
+        this.room = room;
+        this.size = size;
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.rooms = rooms;
+        this.period = period;
+        this.count = count;
+    }
+
+    /**
+     * Creates an event for a room being added
+     * @param sequence position in the change stream
+     * @param venue name of the venue
+     * @param room name of the room
+     * @param size size of the room
+     * @return the event
+     */
+    public static ChangeEvent roomAdded(long sequence, String venue, String room, String size) {
+        return new ChangeEvent(sequence, Type.ROOM_ADDED, venue, room, size,
+            null, null, null, Collections.<String>emptyList(), 0, 0);
+    }
+
+    /**
+     * Creates an event for a booking being placed in some rooms
+     * @param sequence position in the change stream
+     * @param id unique bookingID
+     * @param venue name of the venue holding the booking
+     * @param rooms names of the booked rooms, in venue order
+     * @param start first day of the booking
+     * @param end last day of the booking
+     * @return the event
+     */
+    public static ChangeEvent booked(long sequence, String id, String venue, List<String> rooms,
+    LocalDate start, LocalDate end) {
+        return new ChangeEvent(sequence, Type.BOOKED, venue, null, null,
+            id, start, end, Collections.unmodifiableList(rooms), 0, 1);
+    }
+
+    /**
+     * Creates an event for a recurring booking being placed in some rooms
+     * @param sequence position in the change stream
+     * @param id unique bookingID
+     * @param venue name of the venue holding the booking
+     * @param rooms names of the booked rooms, in venue order
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @return the event
+     */
+    public static ChangeEvent bookedSeries(long sequence, String id, String venue, List<String> rooms,
+    LocalDate start, LocalDate end, int period, int count) {
+        return new ChangeEvent(sequence, Type.BOOKED, venue, null, null,
+            id, start, end, Collections.unmodifiableList(rooms), period, count);
+    }
+
+    /**
+     * Creates an event for a booking being removed from every room it held
+     * @param sequence position in the change stream
+     * @param id unique bookingID
+     * @return the event
+     */
+    public static ChangeEvent cancelled(long sequence, String id) {
+        return new ChangeEvent(sequence, Type.CANCELLED, null, null, null,
+            id, null, null, Collections.<String>emptyList(), 0, 0);
+    }
+
+    /**
+     * Gets the position of the event in the change stream
+     * @return sequence number, starting at 1
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the kind of mutation
+     * @return type of the event
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the venue of an added room or a booking
+     * @return name of the venue, or null for a cancellation
+     */
+    public String getVenue() {
+        return venue;
+    }
+
+    /**
+     * Gets the name of an added room
+     * @return name of the room, or null for other events
+     */
+    public String getRoom() {
+        return room;
+    }
+
+    /**
+     * Gets the size of an added room
+     * @return size of the room, or null for other events
+     */
+    public String getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the bookingID of a booking or cancellation
+     * @return unique bookingID, or null for an added room
+     */
+    public String getID() {
+        return id;
+    }
+
+    /**
+     * Gets the days between occurrences of a recurring booking
+     * @return period in days, 0 for a one off booking or other events
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Gets the number of occurrences of a booking
+     * @return number of occurrences, 1 for a one off booking, 0 for other events
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the first day of a booking, or of its first occurrence
+     * @return start date, or null for other events
+     */
+    public LocalDate getStartDate() {
+        return start;
+    }
+
+    /**
+     * Gets the last day of a booking, or of its first occurrence
+     * @return end date, or null for other events
+     */
+    public LocalDate getEndDate() {
+        return end;
+    }
+
+    /**
+     * Gets the rooms a booking was placed in
+     * @return names of the booked rooms in venue order, empty for other events
+     */
+    public List<String> getRooms() {
+        return rooms;
+    }
+}
@@ -0,0 +1,24 @@
+package unsw.venues;
+
+/**
+ * Receives the change stream of a VenueHelper. Events arrive in sequence
+ * order on the thread making the change, once the change has been made.
+ * A command such as a change may publish several events before it commits.
+ * @author Frank Merriman
+ */
+public interface ChangeListener {
+
+    /**
+     * Called once for every committed mutation
+     * @param event the mutation
+     */
+    void changed(ChangeEvent event);
+
+    /**
+     * Called after a command's last change, so listeners can expose its
+     * changes together. Does nothing unless overridden.
+     * @param sequence sequence number of the command's last change
+     */
+    default void committed(long sequence) {
+    }
+}
@@ -0,0 +1,183 @@
+package unsw.venues;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.json.JSONObject;
+
+/**
+ * Runs a stream of commands in three stages, each on its own thread: parse
+ * the JSON lines, execute the commands, then format and write the results.
+ *
+ * Stages hand work on in batches through bounded ring buffers
+ * (ArrayBlockingQueue), so each hand-off costs one lock per batch rather
+ * than per command, and a slow stage holds back the ones before it instead
+ * of buffering without limit. Execution stays on one thread in input order,
+ * so the output is the same as running the commands one at a time. A batch
+ * is passed on early whenever no more input is ready, so interactive use
+ * still answers each line straight away.
+ * @author Frank Merriman
+ */
+public class CommandPipeline {
+    private static final List<Object> END = new ArrayList<Object>();
+
+    private final CommandProcessor system;
+    private final int batchSize;
+    private final BlockingQueue<List<Object>> parsed;
+    private final BlockingQueue<List<Object>> executed;
+    private volatile RuntimeException parseFailure;
+    private volatile RuntimeException executeFailure;
+
+    /**
+     * Constructor for CommandPipeline
+     * @param system runs the commands, only ever from the execute stage
+     * @param capacity number of batches each ring buffer holds
+     * @param batchSize largest number of commands in a batch
+     */
+    public CommandPipeline(CommandProcessor system, int capacity, int batchSize) {
+        this.system = system;
+        this.batchSize = batchSize;
+        parsed = new ArrayBlockingQueue<List<Object>>(capacity);
+        executed = new ArrayBlockingQueue<List<Object>>(capacity);
+    }
+
+    /**
+     * Runs every command from the input and writes each output on its own
+     * line. Returns once all output is written and flushed. If a command
+     * fails, the outputs of the commands before it are still written.
+     * @param in JSON commands, one per line
+     * @param out destination for the outputs
+     * @throws IOException if reading or writing fails
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+        Thread parser = new Thread(() -> parse(in), "venues-pipeline-parse");
+        Thread executor = new Thread(this::executeAll, "venues-pipeline-execute");
+        parser.setDaemon(true);
+        executor.setDaemon(true);
+        parser.start();
+        executor.start();
+
+        try {
+            write(out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while running commands", e);
+        }
+
+        //the execute stage only sees lines before a parse failure, so its failure came first
+        if (executeFailure != null) {
+            parser.interrupt();
+            throw executeFailure;
+        }
+        if (parseFailure != null) {
+            throw parseFailure;
+        }
+    }
+
+    /**
+     * Parse stage: reads and parses lines into batches of JSONObjects
+     */
+    private void parse(BufferedReader in) {
+        List<Object> batch = new ArrayList<Object>(batchSize);
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.trim().equals("")) {
+                    batch.add(new JSONObject(line));
+                }
+
+                if (batch.size() == batchSize || (!batch.isEmpty() && !in.ready())) {
+                    parsed.put(batch);
+                    batch = new ArrayList<Object>(batchSize);
+                }
+            }
+        } catch (IOException e) {
+            parseFailure = new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            parseFailure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        hand(parsed, batch);
+    }
+
+    /**
+     * Execute stage: runs each command in order and replaces it with its
+     * unformatted result
+     */
+    private void executeAll() {
+        try {
+            while (true) {
+                List<Object> batch = parsed.take();
+                if (batch == END) {
+                    break;
+                }
+
+                int done = 0;
+                try {
+                    for (; done < batch.size(); done++) {
+                        batch.set(done, system.execute((JSONObject) batch.get(done)));
+                    }
+                } catch (RuntimeException e) {
+                    //pass on what ran before the failure, then stop
+                    executeFailure = e;
+                    hand(executed, new ArrayList<Object>(batch.subList(0, done)));
+                    return;
+                }
+
+                executed.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        hand(executed, new ArrayList<Object>());
+    }
+
+    /**
+     * Write stage: formats results and writes them, flushing whenever it
+     * has caught up with the execute stage
+     */
+    private void write(Writer out) throws IOException, InterruptedException {
+        while (true) {
+            List<Object> batch = executed.take();
+            if (batch == END) {
+                break;
+            }
+
+            for (Object result : batch) {
+                VenueHireSystem.write(result, out);
+            }
+
+            if (executed.isEmpty()) {
+                out.flush();
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Passes on a last partial batch followed by the end marker
+     */
+    private void hand(BlockingQueue<List<Object>> queue, List<Object> last) {
+        try {
+            if (!last.isEmpty()) {
+                queue.put(last);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package unsw.venues;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.json.JSONObject;
+
+/**
+ * Anything that can run venue hire commands, such as a single
+ * VenueHireSystem or a ShardRouter in front of several
+ * @author Frank Merriman
+ */
+public interface CommandProcessor {
+
+    /**
+     * Runs one command
+     * @param json contains command type and paramters for command to run with
+     * @return the command's output formatted as it is printed, or null if
+     * the command produces no output
+     */
+    String processCommand(JSONObject json);
+
+    /**
+     * Runs one command, leaving its result unformatted if that is cheaper.
+     * Formatting the result with VenueHireSystem.serialize gives the same
+     * text processCommand returns.
+     * @param json contains command type and paramters for command to run with
+     * @return JSONObject, JSONArray or String result, or null if the command
+     * produces no output
+     */
+    default Object execute(JSONObject json) {
+        return processCommand(json);
+    }
+
+    /**
+     * Runs one command and writes its output the way it is printed,
+     * followed by a line separator
+     * @param json contains command type and paramters for command to run with
+     * @param out destination for the output
+     * @return true if anything was written, false if the command produces
+     * no output
+     * @throws IOException if writing fails
+     */
+    default boolean execute(JSONObject json, Writer out) throws IOException {
+        return VenueHireSystem.write(execute(json), out);
+    }
+}
@@ -0,0 +1,406 @@
+package unsw.venues;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+/**
+ * Admission control and scheduling in front of a CommandProcessor that many
+ * threads share, such as a ShardServer's system, which every connected
+ * router calls into at once. The command line runner puts one in front of
+ * its system too when -Dvenues.admission.deadline is set, though a single
+ * caller never builds a queue, so there it only ever passes commands on.
+ *
+ * Each command type waits in its own bounded queue. A single worker thread
+ * takes commands from the queues by deficit round robin: on each visit a
+ * queue earns its weight in credit and runs one command per credit, so
+ * under load every type gets a share of the worker in proportion to its
+ * weight. A burst of requests no longer holds up the lists behind it.
+ *
+ * Requests, changes, recurring requests, lists and reports have a
+ * deadline, counted from when they arrive. One that finds its queue full,
+ * or is still waiting when its deadline passes, is not run and gets
+ * {"status": "busy"} back, so a caller waits at most the deadline plus the
+ * command running ahead of it. The worker keeps a moving average of how
+ * long a command takes, and one arriving behind more queued commands than
+ * that lets it run before the deadline is answered busy straight away
+ * rather than left waiting for it. While the worker is kept busy the
+ * average counts from the end of one command to the end of the next, so
+ * time the worker spends waiting for a CPU held by the callers' own
+ * threads, such as a shard's connections, counts as well. Rooms, cancels, probes and stats change
+ * state the caller relies on, or are rare, so they always run; a caller
+ * that finds their queue full waits for space rather than being turned
+ * away, so they are bounded as well. Their queues hold at least one command
+ * whatever the capacity.
+ *
+ * Commands run one at a time on the worker holding the processor's lock,
+ * so callers that lock the processor themselves stay safe.
+ * @author Frank Merriman
+ */
+public class CommandScheduler implements CommandProcessor {
+    private static final String BUSY = busy().toString(2);
+    private static final String[] SHEDDABLE = {"request", "change", "recurring", "list", "report"};
+
+    private final CommandProcessor system;
+    private final long deadline;
+    private final Lane[] lanes;
+    private final Map<String, Lane> commandLanes;
+    private int pending;
+    private long service;
+    private int current;
+    private boolean fresh;
+    private boolean closed;
+
+    /**
+     * Constructor for CommandScheduler
+     * Starts the worker thread straight away
+     * @param system runs the commands, only ever from the worker thread
+     * @param weights share of the worker each command type gets; types not
+     * listed share one queue of weight 1, so every command that may be
+     * answered busy should be listed
+     * @param capacity number of commands each queue holds
+     * @param deadlineMillis longest a request, change, recurring request,
+     * list or report waits before it is answered busy
+     */
+    public CommandScheduler(CommandProcessor system, Map<String, Integer> weights,
+    int capacity, long deadlineMillis) {
+        this.system = system;
+        deadline = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        lanes = new Lane[weights.size() + 1];
+        commandLanes = new HashMap<String, Lane>();
+        int i = 0;
+        for (Map.Entry<String, Integer> w : weights.entrySet()) {
+            boolean sheddable = isSheddable(w.getKey());
+            lanes[i] = new Lane(w.getValue(), sheddable ? capacity : Math.max(capacity, 1), sheddable);
+            commandLanes.put(w.getKey(), lanes[i]);
+            i = i + 1;
+        }
+        lanes[i] = new Lane(1, Math.max(capacity, 1), false);
+        fresh = true;
+
+        Thread worker = new Thread(this::runAll, "venues-scheduler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Creates a scheduler from -Dvenues.admission.deadline (ms),
+     * -Dvenues.admission.capacity (default 256) and
+     * -Dvenues.admission.weights
+     * @param system runs the commands
+     * @return a scheduler in front of system, or null if no deadline is set
+     */
+    public static CommandScheduler fromProperties(CommandProcessor system) {
+        Long deadline = Long.getLong("venues.admission.deadline");
+        if (deadline == null) {
+            return null;
+        }
+
+        return new CommandScheduler(system,
+            parseWeights(System.getProperty("venues.admission.weights")),
+            Integer.getInteger("venues.admission.capacity", 256), deadline);
+    }
+
+    /**
+     * Gets the weights used when none are configured: requests and the
+     * probes a router sends ahead of them get the largest share, then
+     * lists, changes and cancels
+     * @return weights by command type
+     */
+    public static Map<String, Integer> defaultWeights() {
+        Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+        weights.put("request", 4);
+        weights.put("probe", 4);
+        weights.put("list", 2);
+        weights.put("change", 2);
+        weights.put("cancel", 2);
+        weights.put("recurring", 1);
+        weights.put("report", 1);
+        weights.put("room", 1);
+        return weights;
+    }
+
+    /**
+     * Reads weights given as command:weight pairs, e.g. request:4,list:2.
+     * Every command that may be answered busy must be given a weight, since
+     * the shared queue of the types left out never sheds.
+     * @param spec comma separated pairs, or null for the defaults
+     * @return weights by command type, in the order given
+     * @throws IllegalArgumentException if a pair is malformed, a weight is
+     * below 1, or request, change, recurring, list or report is missing
+     */
+    public static Map<String, Integer> parseWeights(String spec) {
+        if (spec == null) {
+            return defaultWeights();
+        }
+
+        Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+        for (String pair : spec.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("expected command:weight: " + pair);
+            }
+            int weight = Integer.parseInt(pair.substring(colon + 1).trim());
+            if (weight < 1) {
+                throw new IllegalArgumentException("weight must be at least 1: " + pair);
+            }
+            weights.put(pair.substring(0, colon).trim(), weight);
+        }
+
+        for (String command : SHEDDABLE) {
+            if (!weights.containsKey(command)) {
+                throw new IllegalArgumentException("no weight for " + command + ": " + spec);
+            }
+        }
+
+        return weights;
+    }
+
+    /**
+     * Checks if a command type may be answered busy instead of run
+     * @param command command type
+     * @return true for request, change, recurring, list and report
+     */
+    private static boolean isSheddable(String command) {
+        return Arrays.asList(SHEDDABLE).contains(command);
+    }
+
+    /**
+     * Creates the result given to a command that was not run
+     * @return {"status": "busy"}
+     */
+    public static JSONObject busy() {
+        JSONObject result = new JSONObject();
+        result.put("status", "busy");
+        return result;
+    }
+
+    /**
+     * Queues a command and waits for the worker to run it
+     * @param json contains command type and paramters for command to run with
+     * @return the command's output, {"status": "busy"} formatted if it was
+     * shed, or null if the command produces no output
+     */
+    @Override
+    public String processCommand(JSONObject json) {
+        try {
+            Ticket ticket = admit(json);
+            if (ticket == null) {
+                return BUSY;
+            }
+
+            if (ticket.lane.sheddable) {
+                long wait = ticket.deadline - System.nanoTime();
+                if (!ticket.done.await(wait, TimeUnit.NANOSECONDS) && withdraw(ticket)) {
+                    return BUSY;
+                }
+            }
+
+            //already running, so its answer is on the way
+            ticket.done.await();
+
+            if (ticket.failure != null) {
+                throw ticket.failure;
+            }
+            return ticket.output;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a command", e);
+        }
+    }
+
+    /**
+     * Adds a command to its queue, waiting for space if the command may not
+     * be answered busy
+     * @return the queued ticket, or null if its queue is full
+     */
+    private synchronized Ticket admit(JSONObject json) throws InterruptedException {
+        Lane lane = commandLanes.getOrDefault(json.getString("command"), lanes[lanes.length - 1]);
+        if (lane.sheddable && (lane.queue.size() >= lane.capacity || pending * service > deadline)) {
+            Metrics.reject(Metrics.Rejection.BUSY);
+            return null;
+        }
+
+        while (!closed && lane.queue.size() >= lane.capacity) {
+            wait();
+        }
+        if (closed) {
+            throw new IllegalStateException("scheduler is closed");
+        }
+
+        long now = System.nanoTime();
+        Ticket ticket = new Ticket(json, lane, now, now + deadline);
+        lane.queue.add(ticket);
+        pending = pending + 1;
+        notifyAll();
+        return ticket;
+    }
+
+    /**
+     * Counts the commands waiting in a command type's queue
+     * @param command command type
+     * @return number queued and not yet running
+     */
+    synchronized int queued(String command) {
+        return commandLanes.getOrDefault(command, lanes[lanes.length - 1]).queue.size();
+    }
+
+    /**
+     * Takes a command back out of its queue once its caller stops waiting
+     * @return true if it had not started running
+     */
+    private synchronized boolean withdraw(Ticket ticket) {
+        if (!ticket.lane.queue.remove(ticket)) {
+            return false;
+        }
+
+        pending = pending - 1;
+        Metrics.reject(Metrics.Rejection.BUSY);
+        return true;
+    }
+
+    /**
+     * Picks the next command by deficit round robin
+     * @return the next command to run, or null if every queue is empty
+     */
+    private Ticket next() {
+        if (pending == 0) {
+            return null;
+        }
+
+        while (true) {
+            Lane lane = lanes[current];
+            if (lane.queue.isEmpty()) {
+                //an idle queue saves up no credit
+                lane.deficit = 0;
+            } else {
+                if (fresh) {
+                    lane.deficit = lane.deficit + lane.weight;
+                    fresh = false;
+                }
+                if (lane.deficit >= 1) {
+                    lane.deficit = lane.deficit - 1;
+                    pending = pending - 1;
+                    if (!lane.sheddable) {
+                        //callers may be waiting for room in this queue
+                        notifyAll();
+                    }
+                    return lane.queue.poll();
+                }
+            }
+
+            current = (current + 1) % lanes.length;
+            fresh = true;
+        }
+    }
+
+    /**
+     * Worker loop: runs queued commands until the scheduler is closed,
+     * answering busy for any whose deadline has passed
+     */
+    private void runAll() {
+        try {
+            long took = 0;
+            long finished = 0;
+            boolean idle = true;
+            while (true) {
+                Ticket ticket;
+                synchronized (this) {
+                    if (took > 0) {
+                        //weight the latest command by an eighth
+                        service = service + (took - service) / 8;
+                        took = 0;
+                    }
+                    while ((ticket = next()) == null) {
+                        if (closed) {
+                            return;
+                        }
+                        idle = true;
+                        wait();
+                    }
+                    Metrics.record(Metrics.Stage.QUEUE_WAIT, ticket.admitted);
+                }
+
+                if (ticket.lane.sheddable && System.nanoTime() > ticket.deadline) {
+                    synchronized (this) {
+                        Metrics.reject(Metrics.Rejection.BUSY);
+                    }
+                    ticket.output = BUSY;
+                    ticket.done.countDown();
+                    continue;
+                }
+
+                long began = System.nanoTime();
+                try {
+                    synchronized (system) {
+                        ticket.output = system.processCommand(ticket.command);
+                    }
+                } catch (RuntimeException e) {
+                    ticket.failure = e;
+                }
+                long now = System.nanoTime();
+                took = now - (idle ? began : finished);
+                finished = now;
+                idle = false;
+                ticket.done.countDown();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the worker once every queued command has run. Commands arriving
+     * after this fail.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * A queue of one or more command types and its round robin credit
+     */
+    private static final class Lane {
+        private final int weight;
+        private final int capacity;
+        private final boolean sheddable;
+        private final ArrayDeque<Ticket> queue;
+        private int deficit;
+
+        Lane(int weight, int capacity, boolean sheddable) {
+            this.weight = weight;
+            this.capacity = capacity;
+            this.sheddable = sheddable;
+            queue = new ArrayDeque<Ticket>();
+        }
+    }
+
+    /**
+     * A queued command and, once run, its output
+     */
+    private static final class Ticket {
+        private final JSONObject command;
+        private final Lane lane;
+        private final long admitted;
+        private final long deadline;
+        private final CountDownLatch done;
+        private String output;
+        private RuntimeException failure;
+
+        Ticket(JSONObject command, Lane lane, long admitted, long deadline) {
+            this.command = command;
+            this.lane = lane;
+            this.admitted = admitted;
+            this.deadline = deadline;
+            done = new CountDownLatch(1);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Takes the first free rooms of each size in the order they were added to
+ * the venue
+ * @author Frank Merriman
+ */
+public class FirstFitStrategy implements AllocationStrategy {
+
+    @Override
+    public List<Room> selectRooms(List<Room> rooms, int ID, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        List<Room> chosen = new ArrayList<Room>();
+        int[] wanted = RoomSize.counts(small, medium, large);
+        int[] taken = new int[wanted.length];
+
+        for (Room r : rooms) {
+            int size = r.getSize().ordinal();
+            if (taken[size] < wanted[size] && r.avaliableSpace(ID, start, end)) {
+                chosen.add(r);
+                taken[size] = taken[size] + 1;
+            }
+        }
+
+        return chosen;
+    }
+}
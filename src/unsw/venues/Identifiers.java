@@ -0,0 +1,156 @@
+package unsw.venues;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interning table for booking, room and venue names. Each distinct name is
+ * given a small int handle the first time it is interned, so the rest of the
+ * system compares names with a single int compare.
+ *
+ * Venue and room names are interned for the life of the process. Booking
+ * IDs are held instead: every VenueHelper or snapshot writer placing a
+ * booking holds its ID and releases it when the booking is cancelled, and
+ * once nothing holds an ID its name is forgotten and its slot reused. A
+ * reused slot gets a new handle, so a stale handle kept by an old snapshot
+ * never matches the name that took its place. Lookups never add names, so
+ * checking for a name that was never booked does not grow the table.
+ * @author Frank Merriman
+ */
+public final class Identifiers {
+    /** Handle of a name that has never been interned, matching nothing */
+    public static final int NONE = -1;
+
+    //a handle is its slot in the low bits and how often the slot was reused above them
+    private static final int SLOT_BITS = 24;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int REUSE_MASK = (1 << (31 - SLOT_BITS)) - 1;
+    //held count of a name interned for good
+    private static final int PINNED = -1;
+
+    private static final ConcurrentHashMap<String, Integer> handles = new ConcurrentHashMap<String, Integer>();
+    private static volatile String[] names = new String[1024];
+    private static int[] holds = new int[1024];
+    private static int[] reuses = new int[1024];
+    private static int[] free = new int[16];
+    private static int freeCount;
+    private static int count;
+
+    private Identifiers() {
+    }
+
+    /**
+     * Gets the handle for a name, creating one if needed. The name is never
+     * released.
+     * @param name case sensitive name
+     * @return handle of the name
+     */
+    public static synchronized int intern(String name) {
+        int handle = add(name);
+        holds[handle & SLOT_MASK] = PINNED;
+        return handle;
+    }
+
+    /**
+     * Gets the handle for a name, creating one if needed, and holds it until
+     * a matching release
+     * @param name case sensitive name
+     * @return handle of the name
+     */
+    public static synchronized int hold(String name) {
+        int handle = add(name);
+        int slot = handle & SLOT_MASK;
+        if (holds[slot] != PINNED) {
+            holds[slot] = holds[slot] + 1;
+        }
+        return handle;
+    }
+
+    /**
+     * Drops one hold on a name. Once the last is dropped the name is
+     * forgotten and its slot may be given to another name.
+     * @param handle handle returned by hold
+     */
+    public static synchronized void release(int handle) {
+        int slot = handle & SLOT_MASK;
+        if (holds[slot] == PINNED || holds[slot] == 0 || handle >>> SLOT_BITS != reuses[slot]) {
+            return;
+        }
+
+        holds[slot] = holds[slot] - 1;
+        if (holds[slot] == 0) {
+            handles.remove(names[slot]);
+            names[slot] = null;
+            reuses[slot] = (reuses[slot] + 1) & REUSE_MASK;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount] = slot;
+            freeCount = freeCount + 1;
+        }
+    }
+
+    /**
+     * Finds or creates the handle for a name; callers hold the class lock
+     */
+    private static int add(String name) {
+        Integer handle = handles.get(name);
+        if (handle != null) {
+            return handle;
+        }
+
+        int slot;
+        if (freeCount > 0) {
+            freeCount = freeCount - 1;
+            slot = free[freeCount];
+        } else {
+            if (count > SLOT_MASK) {
+                throw new IllegalStateException("more than " + (SLOT_MASK + 1) + " names in use");
+            }
+            slot = count;
+            count = count + 1;
+        }
+
+        String[] table = names;
+        if (slot == table.length) {
+            table = Arrays.copyOf(table, slot * 2);
+            holds = Arrays.copyOf(holds, slot * 2);
+            reuses = Arrays.copyOf(reuses, slot * 2);
+        }
+        table[slot] = name;
+        holds[slot] = 0;
+        names = table;
+
+        int h = reuses[slot] << SLOT_BITS | slot;
+        handles.put(name, h);
+        return h;
+    }
+
+    /**
+     * Gets the handle for a name without creating one
+     * @param name case sensitive name
+     * @return handle of the name, or NONE if it was never interned or has
+     * been released
+     */
+    public static int lookup(String name) {
+        Integer handle = handles.get(name);
+        return handle == null ? NONE : handle;
+    }
+
+    /**
+     * Gets the name behind a handle
+     * @param handle handle returned by intern, or by hold and not yet released
+     * @return the interned name
+     */
+    public static String name(int handle) {
+        return names[handle & SLOT_MASK];
+    }
+
+    /**
+     * Counts the names the table holds
+     * @return number of names interned or held
+     */
+    static int size() {
+        return handles.size();
+    }
+}
@@ -0,0 +1,115 @@
+package unsw.venues;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Caches the ISO-8601 text of dates, such as 2019-03-25, keyed by year and
+ * day of the year. Every booking printed by a list used to format its dates
+ * afresh; with the cache each day in range is formatted once and the same
+ * String is reused after that.
+ *
+ * Days from 1970 up to the end of 2199 are cached. Each year's days are
+ * only allocated once a date in that year is formatted, and filled in as
+ * they are used, so loading the class costs nothing and a run only holds
+ * the years it prints. Other days are formatted each time. The cache is
+ * shared between threads; two threads filling the same day, or the same
+ * year, just format it twice.
+ *
+ * Parsing reads plain yyyy-mm-dd text itself. LocalDate.parse builds the
+ * java.time formatters the first time it is called, which costs about as
+ * much as loading org.json, so a run only pays for them if some date is
+ * written another way.
+ * @author Frank Merriman
+ */
+public final class IsoDates {
+    private static final int FIRST_YEAR = 1970;
+    private static final int LAST_YEAR = 2199;
+    private static final String[][] cache = new String[LAST_YEAR - FIRST_YEAR + 1][];
+
+    private IsoDates() {
+    }
+
+    /**
+     * Gets the ISO-8601 text of a date
+     * @param date the date
+     * @return the same text as date.toString()
+     */
+    public static String format(LocalDate date) {
+        int year = date.getYear();
+        if (year < FIRST_YEAR || year > LAST_YEAR) {
+            return date.toString();
+        }
+
+        String[] days = cache[year - FIRST_YEAR];
+        if (days == null) {
+            days = new String[366];
+            cache[year - FIRST_YEAR] = days;
+        }
+
+        int index = date.getDayOfYear() - 1;
+        String text = days[index];
+        if (text == null) {
+            text = date.toString();
+            days[index] = text;
+        }
+
+        return text;
+    }
+
+    /**
+     * Counts the years the cache holds days for
+     * @return number of years allocated so far
+     */
+    static int cachedYears() {
+        int years = 0;
+        for (String[] days : cache) {
+            if (days != null) {
+                years = years + 1;
+            }
+        }
+
+        return years;
+    }
+
+    /**
+     * Reads a date from ISO-8601 text, such as 2019-03-25
+     * @param text the text
+     * @return the same date as LocalDate.parse(text)
+     * @throws java.time.format.DateTimeParseException if LocalDate.parse
+     * would throw it
+     */
+    public static LocalDate parse(CharSequence text) {
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    //no such day, so let LocalDate.parse report it
+                }
+            }
+        }
+
+        return LocalDate.parse(text);
+    }
+
+    /**
+     * Reads the decimal number in text[from..to)
+     * @return the number, or -1 if some character is not an ASCII digit
+     */
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,136 @@
+package unsw.venues;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONObject;
+
+/**
+ * A fixed size log-linear histogram of latencies in nanoseconds, in the
+ * style of HdrHistogram. Values below 32 get a bucket each, above that every
+ * power of two is split into 16 buckets, so any recorded value is reported
+ * to within about 6% of its true value.
+ *
+ * Any number of threads may record at once: buckets are atomic and the
+ * totals are adders, so nothing is lost and no lock is taken. A reader
+ * racing with writers sees each value either fully or not at all in the
+ * buckets, though the mean and max may include a few values the
+ * percentiles do not yet.
+ * @author Frank Merriman
+ */
+public class LatencyHistogram {
+    private static final int LINEAR = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BITS = 4;
+    private static final int BUCKETS = LINEAR + (63 - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    /**
+     * Constructor for LatencyHistogram
+     * Initially no values are recorded
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        total = new LongAdder();
+        sum = new LongAdder();
+        max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records one latency
+     * @param nanos latency in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        //the bucket first, so a reader never counts more values than the buckets hold
+        counts.incrementAndGet(indexOf(nanos));
+        total.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Gets the number of recorded values
+     * @return number of recorded values
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * Finds the smallest bucket value that at least the given percentage of
+     * recorded values fall at or below
+     * @param percentile percentage between 0 and 100
+     * @return latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100 * total.sum());
+        if (rank < 1) {
+            rank = 1;
+        }
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestOf(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Creates a JSONObject summarising the histogram in microseconds
+     * @return JSONObject with count, mean, p50, p90, p99, p999 and max
+     */
+    public JSONObject summary() {
+        JSONObject summary = new JSONObject();
+
+        long count = total.sum();
+        summary.put("count", count);
+        summary.put("mean_us", count == 0 ? 0 : micros(sum.sum() / count));
+        summary.put("p50_us", micros(percentile(50)));
+        summary.put("p90_us", micros(percentile(90)));
+        summary.put("p99_us", micros(percentile(99)));
+        summary.put("p999_us", micros(percentile(99.9)));
+        summary.put("max_us", micros(max.get()));
+
+        return summary;
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+
+    /**
+     * Maps a value to its bucket
+     */
+    private static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+        return LINEAR + (exponent - 5) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Largest value that maps to the given bucket
+     */
+    private static long highestOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 5;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
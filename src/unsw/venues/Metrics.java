@@ -0,0 +1,179 @@
+package unsw.venues;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONObject;
+
+/**
+ * Counters and latency histograms for the venue hire system.
+ *
+ * Metrics are switched on with -Dvenues.metrics=true. The flag is a
+ * static final constant, so when it is off start() and record() compile
+ * down to nothing and no clock is read. -Dvenues.metrics.dump=n also prints
+ * a report to stderr every n seconds.
+ *
+ * Everything here is shared by every thread in the process, such as the
+ * scheduler's callers, the shards started by --local-shards and a shard's
+ * connections, so the histograms and counters take concurrent writers.
+ * @author Frank Merriman
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("venues.metrics");
+
+    /**
+     * Commands and the stages inside them that are timed
+     */
+    public enum Stage {
+        ROOM("room"),
+        REQUEST("request"),
+        RECURRING("recurring"),
+        CHANGE("change"),
+        CANCEL("cancel"),
+        LIST("list"),
+        REPORT("report"),
+        UNIQUE_CHECK("unique_check"),
+        AVAILABILITY_SCAN("availability_scan"),
+        REJECTION_CACHE("rejection_cache"),
+        QUEUE_WAIT("queue_wait"),
+        BOOKING_INSERT("booking_insert"),
+        SERIALIZE("serialize");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Checks if this stage is a whole command rather than part of one
+         * @return true for room, request, recurring, change, cancel, list
+         * and report
+         */
+        public boolean isCommand() {
+            return ordinal() <= REPORT.ordinal();
+        }
+    }
+
+    /**
+     * Reasons a request or change can be rejected, or any command shed
+     * as busy
+     */
+    public enum Rejection {
+        DUPLICATE_ID("duplicate_id"),
+        NO_CAPACITY("no_capacity"),
+        BUSY("busy");
+
+        private final String key;
+
+        Rejection(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private static final LongAdder[] rejections = new LongAdder[Rejection.values().length];
+
+    //the histograms are only used, and only loaded, with metrics on
+    static {
+        if (ENABLED) {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < rejections.length; i++) {
+                rejections[i] = new LongAdder();
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Reads the clock at the start of a timed stage
+     * @return current nanoTime, or 0 when metrics are disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time taken by a stage
+     * @param stage stage that has just finished
+     * @param start value returned by start() when the stage began
+     */
+    public static void record(Stage stage, long start) {
+        if (ENABLED) {
+            histograms[stage.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts a rejected request or change
+     * @param reason why it was rejected
+     */
+    public static void reject(Rejection reason) {
+        if (ENABLED) {
+            rejections[reason.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Creates a JSONObject holding every histogram and counter
+     * @return {"enabled": false} when disabled, otherwise
+     * {"enabled": true, "commands": {...}, "stages": {...}, "rejections": {...}}
+     */
+    public static JSONObject report() {
+        JSONObject report = new JSONObject();
+        report.put("enabled", ENABLED);
+
+        if (!ENABLED) {
+            return report;
+        }
+
+        JSONObject commands = new JSONObject();
+        JSONObject stages = new JSONObject();
+        for (Stage s : Stage.values()) {
+            JSONObject summary = histograms[s.ordinal()].summary();
+            if (s.isCommand()) {
+                commands.put(s.key, summary);
+            } else {
+                stages.put(s.key, summary);
+            }
+        }
+
+        JSONObject rejected = new JSONObject();
+        for (Rejection r : Rejection.values()) {
+            rejected.put(r.key, rejections[r.ordinal()].sum());
+        }
+
+        report.put("commands", commands);
+        report.put("stages", stages);
+        report.put("rejections", rejected);
+        return report;
+    }
+
+    /**
+     * Starts a daemon thread that prints a report to stderr at a fixed
+     * interval. Does nothing if metrics are disabled or the interval is
+     * not positive.
+     * @param seconds time between reports
+     */
+    public static void startDump(long seconds) {
+        if (!ENABLED || seconds <= 0) {
+            return;
+        }
+
+        Thread dumper = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(seconds * 1000);
+                    System.err.println(report().toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "venues-metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+}
@@ -0,0 +1,134 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Daily occupancy counters for one venue: for each room size and each day,
+ * how many rooms of that size are booked.
+ *
+ * Counts change only where bookings start and end, so each size keeps a
+ * step function: a sorted map from the first day of each run of equal
+ * counts to that count, which holds until the next key. Days before the
+ * first key have a count of zero. A booking splits the runs at its first
+ * day and the day after its last, then adds to each run between, so its
+ * cost depends on how many other bookings start or end inside it, never on
+ * how many days it covers or how far apart bookings are. Runs left with the
+ * same count as the one before are merged again, so the map stays as small
+ * as the bookings allow. Reading a range of days never looks at a booking.
+ * @author Frank Merriman
+ */
+public class Occupancy {
+    private final NavigableMap<Long, Integer>[] runs;
+
+    /**
+     * Constructor for Occupancy
+     * Initially no day has any room booked
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Occupancy() {
+        runs = new NavigableMap[RoomSize.values().length];
+        for (int s = 0; s < runs.length; s++) {
+            runs[s] = new TreeMap<Long, Integer>();
+        }
+    }
+
+    /**
+     * Adds to the number of rooms of a size booked on each of some days
+     * @param size size of the room
+     * @param start first day
+     * @param end last day
+     * @param delta 1 when a room is booked, -1 when it is freed
+     */
+    public void add(RoomSize size, LocalDate start, LocalDate end, int delta) {
+        NavigableMap<Long, Integer> days = runs[size.ordinal()];
+        long first = start.toEpochDay();
+        long after = end.toEpochDay() + 1;
+
+        split(days, first);
+        split(days, after);
+        for (Map.Entry<Long, Integer> run : days.subMap(first, true, after, false).entrySet()) {
+            run.setValue(run.getValue() + delta);
+        }
+
+        merge(days, after);
+        merge(days, first);
+    }
+
+    /**
+     * Starts a run on a day, with the count the day already has
+     */
+    private static void split(NavigableMap<Long, Integer> days, long day) {
+        if (!days.containsKey(day)) {
+            days.put(day, count(days, day));
+        }
+    }
+
+    /**
+     * Ends the run starting on a day if it has the same count as the run
+     * before it
+     */
+    private static void merge(NavigableMap<Long, Integer> days, long day) {
+        Integer count = days.get(day);
+        if (count != null && count == count(days, day - 1)) {
+            days.remove(day);
+        }
+    }
+
+    /**
+     * Gets the count of a single day
+     */
+    private static int count(NavigableMap<Long, Integer> days, long day) {
+        Map.Entry<Long, Integer> run = days.floorEntry(day);
+        return run == null ? 0 : run.getValue();
+    }
+
+    /**
+     * Copies the number of rooms of a size booked on each of some days
+     * @param size size of the rooms
+     * @param start first day
+     * @param end last day, not before start and at most Integer.MAX_VALUE - 1
+     * days after it
+     * @return one count per day from start to end
+     */
+    public int[] occupied(RoomSize size, LocalDate start, LocalDate end) {
+        NavigableMap<Long, Integer> days = runs[size.ordinal()];
+        long first = start.toEpochDay();
+        int[] counts = new int[Math.toIntExact(end.toEpochDay() - first + 1)];
+
+        //fill each run's share of the range with its count
+        long from = first;
+        int count = count(days, first);
+        for (Map.Entry<Long, Integer> run : days.subMap(first, false, end.toEpochDay(), true).entrySet()) {
+            fill(counts, from - first, run.getKey() - first, count);
+            from = run.getKey();
+            count = run.getValue();
+        }
+        fill(counts, from - first, counts.length, count);
+
+        return counts;
+    }
+
+    /**
+     * Sets counts[from..to) to count, leaving zeros alone
+     */
+    private static void fill(int[] counts, long from, long to, int count) {
+        if (count != 0) {
+            for (int i = (int) from; i < to; i++) {
+                counts[i] = count;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of runs held for a size, for checking that the
+     * counters stay small
+     * @param size size of the rooms
+     * @return number of days on which the count changes
+     */
+    public int runs(RoomSize size) {
+        return runs[size.ordinal()].size();
+    }
+}
@@ -0,0 +1,302 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * An immutable set of bookings for one room, sorted by start date.
+ *
+ * The tree is an AVL tree with path copying: adding or removing a booking
+ * copies the O(log n) nodes on the path to it and shares every other node
+ * with the old tree. Old trees stay valid forever, so any number of threads
+ * can read a tree while newer versions are being built. Each booking keeps
+ * its own name, since an old tree can outlive the hold on its ID.
+ * @author Frank Merriman
+ */
+public final class PersistentBookingTree {
+    private static final PersistentBookingTree EMPTY = new PersistentBookingTree(null);
+
+    private final Node root;
+
+    private PersistentBookingTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Gets the tree holding no bookings
+     * @return the empty tree
+     */
+    public static PersistentBookingTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a tree with one more booking. The booking must not overlap any
+     * booking already in the tree.
+     * @param ID interned handle of the unique bookingID
+     * @param start start date of the booking
+     * @param end end date of the booking
+     * @return the new tree, this tree is unchanged
+     */
+    public PersistentBookingTree addBooking(int ID, LocalDate start, LocalDate end) {
+        return new PersistentBookingTree(insert(root, ID, new NamedBooking(ID, start, end)));
+    }
+
+    /**
+     * Creates a tree without a booking
+     * @param ID interned handle of the unique bookingID
+     * @param start start date the booking was added with
+     * @return the new tree, or this tree if it has no such booking
+     */
+    public PersistentBookingTree removeBooking(int ID, LocalDate start) {
+        Node removed = delete(root, ID, start);
+        return removed == root ? this : new PersistentBookingTree(removed);
+    }
+
+    /**
+     * Checks if the room is free for every day from start to end, ignoring
+     * bookings with the given ID
+     * @param ID interned handle of a bookingID that may be moved
+     * @param start first day wanted
+     * @param end last day wanted
+     * @return true if no other booking overlaps the dates
+     */
+    public boolean avaliableSpace(int ID, LocalDate start, LocalDate end) {
+        //bookings never overlap, so the latest one starting by end also ends last
+        Node latest = latestStartingBy(root, end, ID);
+        return latest == null || latest.booking.getEndDate().isBefore(start);
+    }
+
+    /**
+     * Creates a JSONArray of every booking's details, in date order
+     * @return JSONArray in the same form as BookingHelper.listBookingDetails
+     */
+    public JSONArray listBookingDetails() {
+        JSONArray details = new JSONArray();
+        appendDetails(root, details);
+        return details;
+    }
+
+    /**
+     * Counts the bookings in the tree
+     * @return number of bookings
+     */
+    int size() {
+        return size(root);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : size(node.left) + 1 + size(node.right);
+    }
+
+    /**
+     * Gets the height of the tree
+     * @return nodes on the longest path from the root, 0 when empty
+     */
+    int height() {
+        return height(root);
+    }
+
+    /**
+     * Checks every node's stored height and that its subtrees' heights
+     * differ by at most one
+     * @return true if the tree is a valid AVL tree
+     */
+    boolean isBalanced() {
+        return checkedHeight(root) >= 0;
+    }
+
+    private static int checkedHeight(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        int left = checkedHeight(node.left);
+        int right = checkedHeight(node.right);
+        if (left < 0 || right < 0 || Math.abs(left - right) > 1 || node.height != Math.max(left, right) + 1) {
+            return -1;
+        }
+        return node.height;
+    }
+
+    /**
+     * Counts the nodes of this tree that are the very same objects as nodes
+     * of another tree
+     * @param other tree this one may share nodes with
+     * @return number of shared nodes
+     */
+    int sharedNodes(PersistentBookingTree other) {
+        Set<Node> theirs = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        collect(other.root, theirs);
+        Set<Node> ours = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        collect(root, ours);
+        ours.retainAll(theirs);
+        return ours.size();
+    }
+
+    private static void collect(Node node, Set<Node> nodes) {
+        if (node != null) {
+            nodes.add(node);
+            collect(node.left, nodes);
+            collect(node.right, nodes);
+        }
+    }
+
+    private static void appendDetails(Node node, JSONArray details) {
+        if (node != null) {
+            appendDetails(node.left, details);
+            details.put(node.booking.bookingDetails());
+            appendDetails(node.right, details);
+        }
+    }
+
+    /**
+     * Finds the booking with the latest start on or before a date whose
+     * ID is not skipID
+     */
+    private static Node latestStartingBy(Node node, LocalDate date, int skipID) {
+        if (node == null) {
+            return null;
+        }
+        if (node.booking.getStartDate().isAfter(date)) {
+            return latestStartingBy(node.left, date, skipID);
+        }
+
+        Node later = latestStartingBy(node.right, date, skipID);
+        if (later != null) {
+            return later;
+        }
+        if (node.id != skipID) {
+            return node;
+        }
+        return latestStartingBy(node.left, date, skipID);
+    }
+
+    /**
+     * Orders bookings by start date, then by ID
+     */
+    private static int compare(LocalDate start, int ID, Node node) {
+        int byDate = start.compareTo(node.booking.getStartDate());
+        return byDate != 0 ? byDate : Integer.compare(ID, node.id);
+    }
+
+    private static Node insert(Node node, int ID, Booking booking) {
+        if (node == null) {
+            return new Node(ID, booking, null, null);
+        }
+
+        if (compare(booking.getStartDate(), ID, node) < 0) {
+            return balance(node.id, node.booking, insert(node.left, ID, booking), node.right);
+        }
+        return balance(node.id, node.booking, node.left, insert(node.right, ID, booking));
+    }
+
+    private static Node delete(Node node, int ID, LocalDate start) {
+        if (node == null) {
+            return null;
+        }
+
+        int c = compare(start, ID, node);
+        if (c < 0) {
+            Node left = delete(node.left, ID, start);
+            return left == node.left ? node : balance(node.id, node.booking, left, node.right);
+        }
+        if (c > 0) {
+            Node right = delete(node.right, ID, start);
+            return right == node.right ? node : balance(node.id, node.booking, node.left, right);
+        }
+
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+
+        Node first = node.right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return balance(first.id, first.booking, node.left, deleteFirst(node.right));
+    }
+
+    private static Node deleteFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.id, node.booking, deleteFirst(node.left), node.right);
+    }
+
+    /**
+     * Builds a node from its parts, rotating once or twice if the subtree
+     * heights differ by more than one
+     */
+    private static Node balance(int ID, Booking booking, Node left, Node right) {
+        int diff = height(left) - height(right);
+
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.id, left.booking, left.left,
+                    new Node(ID, booking, left.right, right));
+            }
+            Node pivot = left.right;
+            return new Node(pivot.id, pivot.booking,
+                new Node(left.id, left.booking, left.left, pivot.left),
+                new Node(ID, booking, pivot.right, right));
+        }
+
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.id, right.booking,
+                    new Node(ID, booking, left, right.left), right.right);
+            }
+            Node pivot = right.left;
+            return new Node(pivot.id, pivot.booking,
+                new Node(ID, booking, left, pivot.left),
+                new Node(right.id, right.booking, pivot.right, right.right));
+        }
+
+        return new Node(ID, booking, left, right);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * A booking that remembers the name of its ID when it was added
+     */
+    private static final class NamedBooking extends Booking {
+        private final String name;
+
+        NamedBooking(int ID, LocalDate start, LocalDate end) {
+            super(ID, start, end);
+            name = Identifiers.name(ID);
+        }
+
+        @Override
+        public JSONObject bookingDetails() {
+            return bookingDetails(name, getStartDate(), getEndDate());
+        }
+    }
+
+    private static final class Node {
+        final int id;
+        final Booking booking;
+        final Node left;
+        final Node right;
+        final int height;
+
+        Node(int id, Booking booking, Node left, Node right) {
+            this.id = id;
+            this.booking = booking;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.json.JSONArray;
+
+/**
+ * A read only copy of a VenueHelper kept up to date from its change stream.
+ *
+ * Events are queued as the primary commits them and applied in order by a
+ * daemon thread, so reads here never contend with the primary's writes.
+ * The queue holds at most maxLag events: once the replica falls that far
+ * behind, the primary blocks on its next write until the replica catches up.
+ *
+ * Reads see whatever prefix of the stream has been applied. Passing the
+ * primary's getSequence() as minSequence waits for the replica to reach it,
+ * which gives the same answer the primary would. listRoomsWithinLag is the
+ * bounded-stale read: it may miss up to maxLag of the primary's latest
+ * changes, so it rarely waits at all.
+ * @author Frank Merriman
+ */
+public class ReadReplica implements ChangeListener {
+    private final VenueHelper venues;
+    private final BlockingQueue<ChangeEvent> pending;
+    private final Thread applier;
+    private final int maxLag;
+    private long appliedSequence;
+
+    /**
+     * Constructor for ReadReplica
+     * Initially the replica holds no venues and has applied nothing
+     * @param maxLag number of events the replica may fall behind by
+     */
+    public ReadReplica(int maxLag) {
+        venues = new VenueHelper();
+        venues.setIncrementalChanges(false);
+        pending = new ArrayBlockingQueue<ChangeEvent>(maxLag);
+        this.maxLag = maxLag;
+
+        applier = new Thread(this::applyAll, "venues-replica");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    /**
+     * Queues an event from the primary, waiting while the replica is
+     * maxLag events behind
+     * @param event the committed change
+     */
+    @Override
+    public void changed(ChangeEvent event) {
+        try {
+            pending.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while replica was behind", e);
+        }
+    }
+
+    /**
+     * Applies queued events until the applier thread is interrupted
+     */
+    private void applyAll() {
+        try {
+            while (true) {
+                apply(pending.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies one event to the replica's copy of the state
+     * @param event the next event in sequence order
+     */
+    private synchronized void apply(ChangeEvent event) {
+        switch (event.getType()) {
+
+        case ROOM_ADDED:
+            venues.addRoom(event.getVenue(), event.getRoom(), event.getSize());
+            break;
+
+        case BOOKED:
+            venues.applyBooking(event.getID(), event.getVenue(), event.getRooms(),
+                event.getStartDate(), event.getEndDate(), event.getPeriod(), event.getCount());
+            break;
+
+        case CANCELLED:
+            venues.applyCancel(event.getID());
+            break;
+        }
+
+        appliedSequence = event.getSequence();
+        notifyAll();
+    }
+
+    /**
+     * Gets the sequence number of the last applied event
+     * @return sequence of the last applied event, 0 if none
+     */
+    public synchronized long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Waits until the replica has applied a given event
+     * @param minSequence sequence number to wait for
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitSequence(long minSequence) throws InterruptedException {
+        while (appliedSequence < minSequence) {
+            wait();
+        }
+    }
+
+    /**
+     * Lists the rooms of a venue as of the last applied event
+     * @param venue name of the venue
+     * @return JSONArray in the same form as VenueHelper.listRooms
+     */
+    public synchronized JSONArray listRooms(String venue) {
+        return venues.listRooms(venue);
+    }
+
+    /**
+     * Lists the rooms of a venue once the replica has applied a given event
+     * @param venue name of the venue
+     * @param minSequence sequence number the replica must have reached
+     * @return JSONArray in the same form as VenueHelper.listRooms
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized JSONArray listRooms(String venue, long minSequence) throws InterruptedException {
+        awaitSequence(minSequence);
+        return venues.listRooms(venue);
+    }
+
+    /**
+     * Lists the rooms of a venue missing at most maxLag of the primary's
+     * changes. The replica is usually already that close, since the primary
+     * waits for it past maxLag, so this only waits for an event the applier
+     * has taken off the queue and not yet applied.
+     * @param venue name of the venue
+     * @param primarySequence the primary's getSequence() when the list arrived
+     * @return JSONArray in the same form as VenueHelper.listRooms
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public JSONArray listRoomsWithinLag(String venue, long primarySequence) throws InterruptedException {
+        return listRooms(venue, primarySequence - maxLag);
+    }
+
+    /**
+     * Finds the first venue that could serve a request as of the last
+     * applied event, without booking anything
+     * @param id unique bookingID, whose own bookings are not in the way
+     * @param start start date for room bookings
+     * @param end end date for room bookings
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return name of the venue, or null if no venue has the space
+     */
+    public synchronized String findVenue(String id, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        Venue found = venues.findVenue(id, start, end, small, medium, large);
+        return found == null ? null : found.getName();
+    }
+
+    /**
+     * Stops applying events. Reads keep answering from the state reached.
+     */
+    public void close() {
+        applier.interrupt();
+    }
+}
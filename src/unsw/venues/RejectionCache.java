@@ -0,0 +1,200 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Remembers the shapes of requests that were rejected for lack of space, so
+ * an identical request can be rejected again without scanning every venue.
+ *
+ * A shape is the dates and the number of rooms of each size. Whether a new
+ * request fits depends only on its shape, never its bookingID, so a shape
+ * that did not fit still does not fit until space is freed. Bookings only
+ * take space, so they never make an entry wrong. Freeing a booking's dates
+ * drops every entry whose dates overlap them. A new room could serve any
+ * shape, so it bumps the version instead, and entries from an older
+ * version count as misses.
+ *
+ * Shapes are also kept in a set sorted by start date, along with the
+ * longest span of days any cached shape has covered. A shape can only
+ * overlap the freed days if it starts no more than that span before them,
+ * so freeing looks at the shapes starting in that window instead of every
+ * shape held.
+ *
+ * The cache holds at most capacity shapes and evicts the least recently
+ * used one to make room. It is not thread safe; its VenueHelper guards it.
+ * @author Frank Merriman
+ */
+public class RejectionCache {
+    private final int capacity;
+    private final LinkedHashMap<Shape, Long> rejected;
+    private final TreeSet<Shape> byStart;
+    private long longestSpan;
+    private long version;
+
+    /**
+     * Constructor for RejectionCache
+     * Originally it holds no shapes
+     * @param capacity largest number of shapes held, at least 1
+     */
+    public RejectionCache(int capacity) {
+        this.capacity = capacity;
+        byStart = new TreeSet<Shape>();
+        rejected = new LinkedHashMap<Shape, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Shape, Long> eldest) {
+                if (size() > RejectionCache.this.capacity) {
+                    byStart.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Checks if a request of this shape was rejected and no space has been
+     * freed for it since
+     * @param start start date for room bookings
+     * @param end end date for room bookings
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return true if the request is sure to be rejected again
+     */
+    public boolean isRejected(LocalDate start, LocalDate end, int small, int medium, int large) {
+        Shape shape = new Shape(start.toEpochDay(), end.toEpochDay(), small, medium, large);
+        Long tag = rejected.get(shape);
+        if (tag == null) {
+            return false;
+        }
+
+        if (tag != version) {
+            rejected.remove(shape);
+            byStart.remove(shape);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Records that a request of this shape found no venue with space
+     * @param start start date for room bookings
+     * @param end end date for room bookings
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     */
+    public void reject(LocalDate start, LocalDate end, int small, int medium, int large) {
+        Shape shape = new Shape(start.toEpochDay(), end.toEpochDay(), small, medium, large);
+        if (rejected.put(shape, version) == null) {
+            byStart.add(shape);
+            longestSpan = Math.max(longestSpan, shape.end - shape.start);
+        }
+    }
+
+    /**
+     * Forgets every shape whose dates overlap some freed dates
+     * @param from first freed day
+     * @param to last freed day
+     */
+    public void freed(LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+
+        //only shapes starting at most longestSpan days before first can reach it
+        Shape lowest = new Shape(first - longestSpan, Long.MIN_VALUE, 0, 0, 0);
+        Shape highest = new Shape(last, Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        Iterator<Shape> shapes = byStart.subSet(lowest, true, highest, true).iterator();
+        while (shapes.hasNext()) {
+            Shape s = shapes.next();
+            if (s.end >= first) {
+                shapes.remove();
+                rejected.remove(s);
+            }
+        }
+
+        if (rejected.isEmpty()) {
+            longestSpan = 0;
+        }
+    }
+
+    /**
+     * Forgets every shape, for a change that could free space on any date
+     */
+    public void bump() {
+        version = version + 1;
+    }
+
+    /**
+     * Gets the number of shapes held, including ones from older versions
+     * not yet dropped
+     * @return number of shapes held
+     */
+    public int size() {
+        return rejected.size();
+    }
+
+    /**
+     * Dates and room counts of a request, with dates as epoch days, ordered
+     * by start date and then the other fields
+     */
+    private static final class Shape implements Comparable<Shape> {
+        private final long start;
+        private final long end;
+        private final int small;
+        private final int medium;
+        private final int large;
+
+        Shape(long start, long end, int small, int medium, int large) {
+            this.start = start;
+            this.end = end;
+            this.small = small;
+            this.medium = medium;
+            this.large = large;
+        }
+
+        @Override
+        public int compareTo(Shape s) {
+            int c = Long.compare(start, s.start);
+            if (c == 0) {
+                c = Long.compare(end, s.end);
+            }
+            if (c == 0) {
+                c = Integer.compare(small, s.small);
+            }
+            if (c == 0) {
+                c = Integer.compare(medium, s.medium);
+            }
+            if (c == 0) {
+                c = Integer.compare(large, s.large);
+            }
+            return c;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Shape)) {
+                return false;
+            }
+
+            Shape s = (Shape) o;
+            return start == s.start && end == s.end
+                && small == s.small && medium == s.medium && large == s.large;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Long.hashCode(start);
+            hash = 31 * hash + Long.hashCode(end);
+            hash = 31 * hash + small;
+            hash = 31 * hash + medium;
+            return 31 * hash + large;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package unsw.venues;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Formats command results straight into a reused StringBuilder, giving
+ * exactly the text org.json's toString(2) gives.
+ *
+ * Results that are already JSONObject or JSONArray trees are walked in the
+ * same key order org.json uses, without its intermediate writers. A list
+ * is written straight from the venue's rooms and bookings, with no tree
+ * built at all and dates taken from IsoDates.
+ *
+ * org.json keeps keys in a HashMap, so its key order comes from the map,
+ * not from the order keys are put in, and could change with the library
+ * or the JDK. So the list path does not hard code an order: when the class
+ * loads it builds a room and a reservation JSONObject the same way Room and
+ * Booking do and writes their fields in the order those iterate in.
+ *
+ * Output goes to a Writer by copying from the builder through a small
+ * reused buffer, so no String is made. A writer is not thread safe;
+ * local() gives each thread its own.
+ * @author Frank Merriman
+ */
+public final class ResultWriter implements BookingHelper.Visitor {
+    private static final ThreadLocal<ResultWriter> LOCAL = ThreadLocal.withInitial(ResultWriter::new);
+
+    //fields of a room and of a reservation, in the order org.json lists them
+    private static final String[] ROOM_KEYS = keyOrder("room", "reservations");
+    private static final String[] RESERVATION_KEYS = keyOrder("id", "start", "end");
+
+    private final StringBuilder out;
+    private final char[] chunk;
+    private int reservation;
+    private int reservations;
+    private int indent;
+
+    /**
+     * Constructor for ResultWriter
+     */
+    public ResultWriter() {
+        out = new StringBuilder(1 << 12);
+        chunk = new char[1 << 12];
+    }
+
+    /**
+     * Finds the order a JSONObject iterates over some keys in
+     * @param keys keys in the order they are put
+     * @return the same keys in iteration order
+     */
+    private static String[] keyOrder(String... keys) {
+        JSONObject object = new JSONObject();
+        for (String key : keys) {
+            object.put(key, "");
+        }
+
+        return object.keySet().toArray(new String[keys.length]);
+    }
+
+    /**
+     * Gets the calling thread's writer
+     * @return a writer only this thread uses
+     */
+    public static ResultWriter local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Formats a result tree
+     * @param result JSONObject, JSONArray, String or other JSON value
+     * @return the same text as result.toString(2)
+     */
+    public String write(Object result) {
+        out.setLength(0);
+        value(result, 0);
+        return out.toString();
+    }
+
+    /**
+     * Formats a result tree onto a writer
+     * @param result JSONObject, JSONArray, String or other JSON value
+     * @param to receives the same text as result.toString(2)
+     * @throws IOException if writing fails
+     */
+    public void write(Object result, Writer to) throws IOException {
+        out.setLength(0);
+        value(result, 0);
+        drain(to);
+    }
+
+    /**
+     * Formats the rooms of a venue and their bookings
+     * @param rooms rooms of the venue, in the order they were added
+     * @return the same text as the venue's listRooms().toString(2)
+     */
+    public String listRooms(List<Room> rooms) {
+        formatRooms(rooms);
+        return out.toString();
+    }
+
+    /**
+     * Formats the rooms of a venue and their bookings onto a writer
+     * @param rooms rooms of the venue, in the order they were added
+     * @param to receives the same text as the venue's listRooms().toString(2)
+     * @throws IOException if writing fails
+     */
+    public void listRooms(List<Room> rooms, Writer to) throws IOException {
+        formatRooms(rooms);
+        drain(to);
+    }
+
+    /**
+     * Copies what has been formatted onto a writer, a buffer at a time
+     */
+    private void drain(Writer to) throws IOException {
+        int length = out.length();
+        for (int from = 0; from < length; from += chunk.length) {
+            int until = Math.min(length, from + chunk.length);
+            out.getChars(from, until, chunk, 0);
+            to.write(chunk, 0, until - from);
+        }
+    }
+
+    /**
+     * Formats the rooms of a venue into the builder
+     */
+    private void formatRooms(List<Room> rooms) {
+        out.setLength(0);
+
+        int count = rooms.size();
+        out.append('[');
+        for (int i = 0; i < count; i++) {
+            int inner = element(i, count, 0);
+            room(rooms.get(i), inner);
+        }
+        close(']', count, 0);
+    }
+
+    /**
+     * Writes {"room": name, "reservations": [...]} in ROOM_KEYS order
+     */
+    private void room(Room room, int indent) {
+        out.append('{');
+        int inner = indent + 2;
+
+        for (int k = 0; k < ROOM_KEYS.length; k++) {
+            out.append(k == 0 ? "\n" : ",\n");
+            spaces(inner);
+            quote(ROOM_KEYS[k]);
+            out.append(": ");
+
+            if (ROOM_KEYS[k].equals("room")) {
+                quote(room.getName());
+            } else {
+                out.append('[');
+                reservation = 0;
+                reservations = room.bookingCount();
+                this.indent = inner;
+                room.visitBookings(this);
+                close(']', reservations, inner);
+            }
+        }
+
+        out.append('\n');
+        spaces(indent);
+        out.append('}');
+    }
+
+    /**
+     * Writes {"id": id, "start": date, "end": date}, in RESERVATION_KEYS
+     * order, as the next element of the reservations array
+     * @param ID interned handle of the bookingID
+     * @param start first day of the booking
+     * @param end last day of the booking
+     */
+    @Override
+    public void visit(int ID, LocalDate start, LocalDate end) {
+        int outer = element(reservation, reservations, indent);
+        int inner = outer + 2;
+        reservation = reservation + 1;
+
+        out.append('{');
+        for (int k = 0; k < RESERVATION_KEYS.length; k++) {
+            out.append(k == 0 ? "\n" : ",\n");
+            spaces(inner);
+            quote(RESERVATION_KEYS[k]);
+            out.append(": ");
+
+            switch (RESERVATION_KEYS[k]) {
+            case "id":
+                quote(Identifiers.name(ID));
+                break;
+            case "start":
+                out.append('"').append(IsoDates.format(start)).append('"');
+                break;
+            default:
+                out.append('"').append(IsoDates.format(end)).append('"');
+            }
+        }
+        out.append('\n');
+        spaces(outer);
+        out.append('}');
+    }
+
+    private void value(Object value, int indent) {
+        if (value instanceof String) {
+            quote((String) value);
+        } else if (value instanceof JSONObject) {
+            object((JSONObject) value, indent);
+        } else if (value instanceof JSONArray) {
+            array((JSONArray) value, indent);
+        } else {
+            out.append(JSONObject.valueToString(value));
+        }
+    }
+
+    private void object(JSONObject object, int indent) {
+        int length = object.length();
+        out.append('{');
+
+        //a single key stays on the opening line, as org.json does
+        if (length == 1) {
+            String key = object.keys().next();
+            quote(key);
+            out.append(": ");
+            value(object.opt(key), indent);
+        } else if (length != 0) {
+            int inner = indent + 2;
+            boolean comma = false;
+            for (String key : object.keySet()) {
+                if (comma) {
+                    out.append(',');
+                }
+                out.append('\n');
+                spaces(inner);
+                quote(key);
+                out.append(": ");
+                value(object.opt(key), inner);
+                comma = true;
+            }
+            out.append('\n');
+            spaces(indent);
+        }
+
+        out.append('}');
+    }
+
+    private void array(JSONArray array, int indent) {
+        int length = array.length();
+        out.append('[');
+        for (int i = 0; i < length; i++) {
+            value(array.opt(i), element(i, length, indent));
+        }
+        close(']', length, indent);
+    }
+
+    /**
+     * Starts element i of an array of length elements
+     * @return indent to write the element at
+     */
+    private int element(int i, int length, int indent) {
+        //a single element stays on the bracket's line, as org.json does
+        if (length == 1) {
+            return indent;
+        }
+
+        if (i > 0) {
+            out.append(',');
+        }
+        out.append('\n');
+        spaces(indent + 2);
+        return indent + 2;
+    }
+
+    /**
+     * Ends an array of length elements
+     */
+    private void close(char bracket, int length, int indent) {
+        if (length > 1) {
+            out.append('\n');
+            spaces(indent);
+        }
+        out.append(bracket);
+    }
+
+    private void spaces(int count) {
+        for (int i = 0; i < count; i++) {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * Writes a string in quotes, escaped the way JSONObject.quote does
+     */
+    private void quote(String string) {
+        out.append('"');
+
+        char previous;
+        char c = 0;
+        for (int i = 0; i < string.length(); i++) {
+            previous = c;
+            c = string.charAt(i);
+
+            switch (c) {
+            case '\\':
+            case '"':
+                out.append('\\').append(c);
+                break;
+            case '/':
+                if (previous == '<') {
+                    out.append('\\');
+                }
+                out.append(c);
+                break;
+            case '\b':
+                out.append("\\b");
+                break;
+            case '\t':
+                out.append("\\t");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            case '\f':
+                out.append("\\f");
+                break;
+            case '\r':
+                out.append("\\r");
+                break;
+            default:
+                if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                    String hex = Integer.toHexString(c);
+                    out.append("\\u");
+                    for (int pad = hex.length(); pad < 4; pad++) {
+                        out.append('0');
+                    }
+                    out.append(hex);
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+
+        out.append('"');
+    }
+}
@@ -10,17 +10,17 @@ import org.json.JSONObject;
  * @author Frank Merriman
  */
 public class Room {
-    private String roomName;
-    private String roomSize;
+    private int roomName;
+    private RoomSize roomSize;
     private BookingHelper bookings;
 
     /**
      * Constructor for Room
      * Initialy BookingHelper contains no bookings
-     * @param name name of the room
+     * @param name interned handle of the name of the room
      * @param size size of the room
      */
-    public Room(String name, String size) {
+    public Room(int name, RoomSize size) {
         roomName = name;
         roomSize = size;
         bookings = new BookingHelper();
@@ -28,10 +28,9 @@ public class Room {
 
     /**
      * Get the size of the room
-     * size is a string equal to small, medium, large
      * @return size of room 
      */
-    public String getSize() {
+    public RoomSize getSize() {
         return roomSize;
     }
 
@@ -41,16 +40,16 @@ public class Room {
      * @return name of room
      */
     public String getName() {
-        return roomName;
+        return Identifiers.name(roomName);
     }
 
     /**
      * Compare the name of a new room to the current room
-     * @param name name of new room
+     * @param name interned handle of the name of new room
      * @return true if name is the same, else false
      */
-    public boolean compareRoomName(String name) {
-        if (roomName.equals(name)) {
+    public boolean compareRoomName(int name) {
+        if (roomName == name) {
             return true;
         }
 
@@ -59,28 +58,41 @@ public class Room {
 
     /**
      * Add a Booking to current room's bookings using given data
-     * @param ID unique ID of a booking request
+     * @param ID interned handle of the unique ID of a booking request
      * @param start start of requested dates
      * @param end end of requested dates
      */
-    public void addBooking(String ID, LocalDate start, LocalDate end) {
+    public void addBooking(int ID, LocalDate start, LocalDate end) {
         bookings.addBooking(ID, start, end);
     }
 
+    /**
+     * Add a recurring booking to current room's bookings
+     * @param ID interned handle of the unique ID of a booking request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     */
+    public void addSeries(int ID, LocalDate start, LocalDate end, int period, int count) {
+        bookings.addSeries(ID, start, end, period, count);
+    }
+
     /**
      * Passes ID down to BookingHelper remove method
-     * @param ID unique ID of a booking request
+     * @param ID interned handle of the unique ID of a booking request
+     * @return true if a booking was removed, otherwise false
      */
-    public void removeBooking(String ID){
-        bookings.removeBooking(ID);
+    public boolean removeBooking(int ID){
+        return bookings.removeBooking(ID);
     }
 
     /**
      * Passes ID down to BookingHelper unique method
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @return false if ID is not unique across all bookings otherwise true
      */
-    public boolean uniqueID(String ID) {
+    public boolean uniqueID(int ID) {
         return bookings.uniqueID(ID);
     }
 
@@ -91,10 +103,51 @@ public class Room {
      * @param end last day of the booking
      * @return true if room has no bookings overlapping with request, otherwise false
      */
-    public boolean avaliableSpace(String ID, LocalDate start, LocalDate end) {
+    public boolean avaliableSpace(int ID, LocalDate start, LocalDate end) {
         return bookings.avaliableSpace(ID, start, end);
     }
 
+    /**
+     * Checks if the room is free for every occurrence of a recurring booking
+     * @param ID interned handle of the unique ID of a booking request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @return true if no occurrence overlaps an existing booking, otherwise false
+     */
+    public boolean seriesSpace(int ID, LocalDate start, LocalDate end, int period, int count) {
+        return bookings.seriesSpace(ID, start, end, period, count);
+    }
+
+    /**
+     * Passes request down to BookingHelper to measure how tightly a new
+     * booking would fit between the room's existing bookings
+     * @param ID interned handle of the unique bookingID of a reservation
+     * @param start first day of the booking
+     * @param end last day of the booking
+     * @return free days either side of the booking, or -1 if the room is taken
+     */
+    public int slackAround(int ID, LocalDate start, LocalDate end) {
+        return bookings.slackAround(ID, start, end);
+    }
+
+    /**
+     * Gets the number of bookings in the room
+     * @return number of bookings, counting each occurrence of a recurring booking
+     */
+    public int bookingCount() {
+        return bookings.bookingCount();
+    }
+
+    /**
+     * Passes every booking in the room to a visitor in date order
+     * @param visitor receives each booking
+     */
+    public void visitBookings(BookingHelper.Visitor visitor) {
+        bookings.visitBookings(visitor);
+    }
+
     /**
      * Creates a JSONObject containing a rooms name and a list
      * of all its bookings sorted by date
@@ -105,7 +158,7 @@ public class Room {
 
         JSONArray bookingData = bookings.listBookingDetails();
 
-        info.put("room", roomName);
+        info.put("room", getName());
         info.put("reservations", bookingData);
         return info;
     }
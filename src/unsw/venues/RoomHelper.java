@@ -2,6 +2,7 @@ package unsw.venues;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.json.JSONArray;
@@ -12,13 +13,25 @@ import org.json.JSONArray;
  */
 public class RoomHelper {
     private List<Room> venueRooms;
+    private AllocationStrategy strategy;
 
     /**
      * Constructor for RoomHelper
      * Initially the list of rooms is empty
+     * Rooms are allocated with the configured strategy
      */
     public RoomHelper() {
+        this(AllocationStrategy.configured());
+    }
+
+    /**
+     * Constructor for RoomHelper
+     * Initially the list of rooms is empty
+     * @param strategy decides which free rooms serve a booking
+     */
+    public RoomHelper(AllocationStrategy strategy) {
         venueRooms = new ArrayList<Room>();
+        this.strategy = strategy;
     }
     
     /**
@@ -26,10 +39,10 @@ public class RoomHelper {
      * are allowed in a venue regardless of size difference. If no
      * difference is found, calls the Room class constructor and appends
      * result to venueRooms
-     * @param roomName name of the new room being created
+     * @param roomName interned handle of the name of the new room being created
      * @param size size of the new room being created
      */
-    public void addRoom(String roomName, String size) {
+    public void addRoom(int roomName, RoomSize size) {
         boolean nameAvaliable = true;
 
         for (Room r : venueRooms) {
@@ -46,7 +59,8 @@ public class RoomHelper {
     /**
      * Finds rooms free that match booking request and adds their names to the list
      * of rooms selected to satisfy the booking request
-     * @param ID unique booking ID associated with booking, case sensitive
+     * The allocation strategy decides which of the free rooms are used
+     * @param ID interned handle of the unique booking ID associated with booking
      * @param start LocalDate for beginning of booking window
      * @param end LocalDate for ending of booking window
      * @param small number of small rooms in booking request
@@ -56,64 +70,158 @@ public class RoomHelper {
      * sorted in order they were added to venue
      */
     public JSONArray addBooking(
-        String ID, LocalDate start, LocalDate end,
+        int ID, LocalDate start, LocalDate end,
         int small, int medium, int large
     ) {
         JSONArray bookedRooms = new JSONArray();
-        int smallCount = 0;
-        int mediumCount = 0;
-        int largeCount = 0;
 
-        for (Room r : venueRooms) {
-            switch(r.getSize()) {
-                case "small":
-                    if (smallCount < small && r.avaliableSpace(ID, start, end)) {
-                        r.addBooking(ID, start, end);
-                        bookedRooms.put(r.getName());
-                        smallCount = smallCount + 1;
-                    }
-                    break;
-                
-                case "medium":
-                    if (mediumCount < medium && r.avaliableSpace(ID, start, end)) {
-                        r.addBooking(ID, start, end);
-                        bookedRooms.put(r.getName());
-                        mediumCount = mediumCount + 1;
-                    }
-                    break;
-                
-                case "large":
-                    if (largeCount < large && r.avaliableSpace(ID, start, end)) {
-                        r.addBooking(ID, start, end);
-                        bookedRooms.put(r.getName());
-                        largeCount = largeCount + 1;
-                    }
-                    break;
-                
-            }
-            
+        for (Room r : bookRooms(ID, start, end, small, medium, large)) {
+            bookedRooms.put(r.getName());
         }
 
-        
         return bookedRooms;
     }
 
+    /**
+     * Books the rooms chosen by the allocation strategy
+     * @param ID interned handle of the unique booking ID associated with booking
+     * @param start LocalDate for beginning of booking window
+     * @param end LocalDate for ending of booking window
+     * @param small number of small rooms in booking request
+     * @param medium number of medium rooms in booking request
+     * @param large number of large rooms in booking request
+     * @return the rooms booked, in the order they were added to the venue
+     */
+    public List<Room> bookRooms(
+        int ID, LocalDate start, LocalDate end,
+        int small, int medium, int large
+    ) {
+        List<Room> chosen = strategy.selectRooms(venueRooms, ID, start, end, small, medium, large);
+
+        for (Room r : chosen) {
+            r.addBooking(ID, start, end);
+        }
+
+        return chosen;
+    }
+
     /**
      * Removes all bookings from rooms in venueRooms with an ID matching the given ID
-     * @param ID unique booking ID of booking to be cancelled/removed 
+     * @param ID interned handle of the unique booking ID of booking to be cancelled/removed
+     * @return true if any room held a booking with that ID, otherwise false
      */
-    public void removeBooking(String ID) {
+    public boolean removeBooking(int ID) {
+        boolean removed = false;
         for (Room r : venueRooms) {
-            r.removeBooking(ID);
+            if (r.removeBooking(ID)) {
+                removed = true;
+            }
         }
+
+        return removed;
+    }
+
+    /**
+     * Picks the first rooms of each size, in the order they were added, that
+     * are free for every occurrence of a recurring booking. Rooms are picked
+     * first-fit whatever the allocation strategy, since strategies rank
+     * rooms for a single set of dates.
+     * @param ID interned handle of the unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return the rooms to book, or null if too few rooms are free
+     */
+    public List<Room> seriesRooms(int ID, LocalDate start, LocalDate end, int period, int count,
+    int small, int medium, int large) {
+        int[] wanted = RoomSize.counts(small, medium, large);
+        List<Room> chosen = new ArrayList<Room>();
+
+        for (Room r : venueRooms) {
+            int size = r.getSize().ordinal();
+            if (wanted[size] > 0 && r.seriesSpace(ID, start, end, period, count)) {
+                wanted[size] = wanted[size] - 1;
+                chosen.add(r);
+            }
+        }
+
+        for (int left : wanted) {
+            if (left > 0) {
+                return null;
+            }
+        }
+
+        return chosen;
+    }
+
+    /**
+     * Books the rooms picked by seriesRooms for every occurrence of a
+     * recurring booking. Either every wanted room is booked or none is.
+     * @param ID interned handle of the unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return the rooms booked, or an empty list if too few rooms are free
+     */
+    public List<Room> bookSeries(int ID, LocalDate start, LocalDate end, int period, int count,
+    int small, int medium, int large) {
+        List<Room> chosen = seriesRooms(ID, start, end, period, count, small, medium, large);
+        if (chosen == null) {
+            return new ArrayList<Room>();
+        }
+
+        for (Room r : chosen) {
+            r.addSeries(ID, start, end, period, count);
+        }
+
+        return chosen;
+    }
+
+    /**
+     * Gets every room in the venue
+     * @return read only list of rooms, in the order they were added
+     */
+    public List<Room> getRooms() {
+        return Collections.unmodifiableList(venueRooms);
+    }
+
+    /**
+     * Finds a room by name
+     * @param roomName interned handle of the name of the room
+     * @return the room, or null if the venue has no room with that name
+     */
+    public Room getRoom(int roomName) {
+        for (Room r : venueRooms) {
+            if (r.compareRoomName(roomName)) {
+                return r;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the number of rooms in the venue
+     * @return number of rooms
+     */
+    public int roomCount() {
+        return venueRooms.size();
     }
 
     /**
      * Checks if a given bookingID exists yet across all rooms in the current venue
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @return false if ID is not unique across all rooms otherwise true
      */
-    public boolean uniqueID(String ID) {
+    public boolean uniqueID(int ID) {
         boolean unique = true;
         for (Room r : venueRooms) {
             if (r.uniqueID(ID) == false) {
@@ -128,7 +236,7 @@ public class RoomHelper {
      * Looks through all rooms in the current venues RoomHelper to check if there
      * are enough rooms of the correct size free on the requested
      * dates.
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @param start first day of the booking
      * @param end last day of the booking
      * @param small number of small rooms requested
@@ -136,50 +244,25 @@ public class RoomHelper {
      * @param large number of large rooms requested
      * @return true if venue contains all rooms of requested size, free on requested dates otherwise false
      */
-    public boolean avaliableSpace(String ID, LocalDate start, LocalDate end,
+    public boolean avaliableSpace(int ID, LocalDate start, LocalDate end,
     int small, int medium, int large) {
-        List<Room> smallRooms = new ArrayList<Room>();
-        List<Room> mediumRooms = new ArrayList<Room>();
-        List<Room> largeRooms = new ArrayList<Room>();
+        int[] wanted = RoomSize.counts(small, medium, large);
+        int[] found = new int[wanted.length];
 
         for (Room r : venueRooms) {
-            switch(r.getSize()) {
-
-                case "small":
-                if (smallRooms.size() < small) {
-                    if (r.avaliableSpace(ID, start, end)) {
-                        smallRooms.add(r);
-                    }
-                }
-                break;
-
-                case "medium":
-                if (mediumRooms.size() < medium) {
-                    if (r.avaliableSpace(ID, start, end)) {
-                        mediumRooms.add(r);
-                    }
-                }
-                break;
-
-                case "large":
-                if (largeRooms.size() < large) {
-                    if (r.avaliableSpace(ID, start, end)) {
-                        largeRooms.add(r);
-                    }
-                }
-                break;
+            int size = r.getSize().ordinal();
+            if (found[size] < wanted[size] && r.avaliableSpace(ID, start, end)) {
+                found[size] = found[size] + 1;
             }
         }
 
-        if (
-            smallRooms.size() == small &&
-            mediumRooms.size() == medium &&
-            largeRooms.size() == large
-        ) {
-            return true;
+        for (int i = 0; i < wanted.length; i++) {
+            if (found[i] != wanted[i]) {
+                return false;
+            }
         }
 
-        return false;
+        return true;
     }
 
     /**
@@ -0,0 +1,78 @@
+package unsw.venues;
+
+/**
+ * The sizes a room can be. Each size's ordinal doubles as its index into
+ * per size count arrays, in the same small, medium, large order used by
+ * booking requests.
+ *
+ * A room command with any other size still adds the room, as it always has,
+ * but no request can ask for it, so it is never booked. Such rooms get the
+ * UNBOOKABLE size, which comes last and always has a count of zero.
+ * @author Frank Merriman
+ */
+public enum RoomSize {
+    SMALL("small"),
+    MEDIUM("medium"),
+    LARGE("large"),
+    UNBOOKABLE("unbookable");
+
+    private static final RoomSize[] SIZES = values();
+
+    private final String name;
+
+    RoomSize(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Finds the size matching its name in commands
+     * @param name one of small, medium, large, or any other name
+     * @return the matching size, or UNBOOKABLE for any other name
+     */
+    public static RoomSize fromString(String name) {
+        for (RoomSize s : SIZES) {
+            if (s.name.equals(name)) {
+                return s;
+            }
+        }
+
+        return UNBOOKABLE;
+    }
+
+    /**
+     * Checks if requests can ask for rooms of this size
+     * @return false for UNBOOKABLE, otherwise true
+     */
+    public boolean isBookable() {
+        return this != UNBOOKABLE;
+    }
+
+    /**
+     * Gets the size at a given index
+     * @param index ordinal of the size
+     * @return the size
+     */
+    public static RoomSize of(int index) {
+        return SIZES[index];
+    }
+
+    /**
+     * Packs request counts into an array indexed by size
+     * @param small number of small rooms
+     * @param medium number of medium rooms
+     * @param large number of large rooms
+     * @return counts indexed by ordinal, with none of UNBOOKABLE
+     */
+    public static int[] counts(int small, int medium, int large) {
+        return new int[] {small, medium, large, 0};
+    }
+
+    /**
+     * Gets the name used for this size in commands
+     * @return small, medium, large or unbookable
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,72 @@
+package unsw.venues;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONObject;
+
+/**
+ * A client connection to one ShardServer. Calls block until the shard
+ * replies; a connection must only be used by one thread at a time.
+ * @author Frank Merriman
+ */
+public class ShardConnection implements Closeable {
+    private final String address;
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    /**
+     * Connects to a shard
+     * @param host shard host name
+     * @param port shard port
+     * @throws IOException if the shard cannot be reached
+     */
+    public ShardConnection(String host, int port) throws IOException {
+        address = host + ":" + port;
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a command and waits for the reply
+     * @param command JSON command
+     * @return the shard's reply
+     */
+    public JSONObject call(JSONObject command) {
+        String line;
+        try {
+            out.write(command.toString());
+            out.write('\n');
+            out.flush();
+            line = in.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("shard " + address + " failed", e);
+        }
+
+        if (line == null) {
+            throw new IllegalStateException("shard " + address + " closed the connection");
+        }
+
+        JSONObject reply = new JSONObject(line);
+        if (reply.has("error")) {
+            throw new IllegalStateException("shard " + address + ": " + reply.getString("error"));
+        }
+
+        return reply;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
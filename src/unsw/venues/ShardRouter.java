@@ -0,0 +1,303 @@
+package unsw.venues;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Runs commands against venues partitioned across several ShardServers,
+ * giving the same output as a single VenueHireSystem holding every venue.
+ *
+ * Each new venue goes to the next shard in turn. The router remembers the
+ * order venues were created in and which shard holds each booking, so it
+ * can keep booking IDs unique across shards and keep the first-fit venue
+ * order. A request, recurring request or change is probed on every shard in parallel, then
+ * committed on the shard whose first free venue comes earliest. A change
+ * that moves a booking to another shard requests it on the new shard and
+ * only cancels it on the old one once that succeeds. Cancels are never
+ * answered busy, so a move either happens on both shards or leaves the
+ * booking where it was. If the old shard fails to cancel, the new booking
+ * is cancelled again before the failure is passed on.
+ * @author Frank Merriman
+ */
+public class ShardRouter implements CommandProcessor, Closeable {
+    private final List<ShardConnection> shards;
+    private final ExecutorService fanOut;
+    private final Map<String, Integer> venueShards;
+    private final Map<String, Integer> venueOrder;
+    private final Map<String, Integer> bookingShards;
+
+    /**
+     * Constructor for ShardRouter
+     * The shards must start out empty
+     * @param shards connections to every shard
+     */
+    public ShardRouter(List<ShardConnection> shards) {
+        this.shards = shards;
+        fanOut = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread thread = new Thread(r, "venues-router-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        venueShards = new HashMap<String, Integer>();
+        venueOrder = new HashMap<String, Integer>();
+        bookingShards = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Starts empty in-JVM shards on loopback ports and connects to them
+     * @param count number of shards
+     * @return a router over the new shards
+     * @throws IOException if a shard cannot be started or reached
+     */
+    public static ShardRouter local(int count) throws IOException {
+        List<ShardConnection> connections = new ArrayList<ShardConnection>();
+        for (int i = 0; i < count; i++) {
+            ShardServer shard = new ShardServer(0).start();
+            connections.add(new ShardConnection("localhost", shard.getPort()));
+        }
+
+        return new ShardRouter(connections);
+    }
+
+    /**
+     * Connects to running shards
+     * @param addresses comma separated list of host:port
+     * @return a router over the shards
+     * @throws IOException if a shard cannot be reached
+     */
+    public static ShardRouter connect(String addresses) throws IOException {
+        List<ShardConnection> connections = new ArrayList<ShardConnection>();
+        for (String address : addresses.split(",")) {
+            int colon = address.lastIndexOf(':');
+            connections.add(new ShardConnection(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1))));
+        }
+
+        return new ShardRouter(connections);
+    }
+
+    @Override
+    public String processCommand(JSONObject json) {
+        switch (json.getString("command")) {
+
+        case "room":
+            String venue = json.getString("venue");
+            Integer shard = venueShards.get(venue);
+            if (shard == null) {
+                shard = venueShards.size() % shards.size();
+                venueOrder.put(venue, venueShards.size());
+                venueShards.put(venue, shard);
+            }
+            return forward(shard, json);
+
+        case "request":
+        case "recurring":
+            if (bookingShards.containsKey(json.getString("id"))) {
+                return rejected();
+            }
+            return place(json, null);
+
+        case "change":
+            return place(json, bookingShards.get(json.getString("id")));
+
+        case "cancel":
+            Integer owner = bookingShards.remove(json.getString("id"));
+            if (owner != null) {
+                forward(owner, json);
+            }
+            return null;
+
+        case "list":
+            shard = venueShards.get(json.getString("venue"));
+            if (shard == null) {
+                return new JSONArray().toString(2);
+            }
+            return forward(shard, json);
+
+        case "report":
+            return report(json);
+
+        case "stats":
+            JSONArray reports = new JSONArray();
+            for (int i = 0; i < shards.size(); i++) {
+                reports.put(new JSONObject(forward(i, json)));
+            }
+            return reports.toString(2);
+        }
+
+        return null;
+    }
+
+    /**
+     * Gathers every shard's utilization report and puts the venues back in
+     * the order they were created
+     * @param json report command
+     * @return the command's output
+     */
+    private String report(JSONObject json) {
+        JSONObject[] ordered = new JSONObject[venueOrder.size()];
+        for (int i = 0; i < shards.size(); i++) {
+            JSONArray part = new JSONArray(forward(i, json));
+            for (int j = 0; j < part.length(); j++) {
+                JSONObject venue = part.getJSONObject(j);
+                ordered[venueOrder.get(venue.getString("venue"))] = venue;
+            }
+        }
+
+        JSONArray report = new JSONArray();
+        for (JSONObject venue : ordered) {
+            if (venue != null) {
+                report.put(venue);
+            }
+        }
+
+        return report.toString(2);
+    }
+
+    /**
+     * Probes every shard and commits a request or change on the one whose
+     * first free venue was created earliest
+     * @param json request or change command
+     * @param owner shard currently holding the booking, or null
+     * @return the command's output
+     */
+    private String place(JSONObject json, Integer owner) {
+        int best = probe(json);
+        if (best < 0) {
+            return rejected();
+        }
+
+        String id = json.getString("id");
+        String output;
+        JSONObject result;
+
+        if (owner == null || owner == best) {
+            output = forward(best, json);
+            result = new JSONObject(output);
+        } else {
+            //book on the new shard first, so a busy or rejected answer keeps the old booking
+            JSONObject request = new JSONObject(json.toString());
+            request.put("command", "request");
+            output = forward(best, request);
+            result = new JSONObject(output);
+
+            if (result.getString("status").equals("success")) {
+                JSONObject cancel = new JSONObject();
+                cancel.put("command", "cancel");
+                cancel.put("id", id);
+                try {
+                    forward(owner, cancel);
+                } catch (RuntimeException e) {
+                    undoMove(best, cancel, e);
+                    throw e;
+                }
+            }
+        }
+
+        //a busy shard ran nothing and a rejected change keeps its booking
+        if (!result.getString("status").equals("success")) {
+            return output;
+        }
+
+        //a booking for no rooms succeeds but holds nothing, so the ID stays free
+        if (result.getJSONArray("rooms").length() > 0) {
+            bookingShards.put(id, best);
+        } else {
+            bookingShards.remove(id);
+        }
+
+        return output;
+    }
+
+    /**
+     * Cancels a moved booking on its new shard after the old shard failed
+     * to cancel it, so it is held where bookingShards says. If that fails
+     * too, the new shard is recorded, since it surely holds the booking.
+     * @param best shard the booking was moved to
+     * @param cancel cancel command for the booking
+     * @param failure why the old shard's cancel failed
+     */
+    private void undoMove(int best, JSONObject cancel, RuntimeException failure) {
+        try {
+            forward(best, cancel);
+        } catch (RuntimeException e) {
+            bookingShards.put(cancel.getString("id"), best);
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Asks every shard in parallel for its first venue able to serve a request
+     * @param json request or change command
+     * @return index of the shard whose venue comes first, or -1 if none can
+     */
+    private int probe(JSONObject json) {
+        JSONObject probe = new JSONObject(json.toString());
+        probe.put("command", "probe");
+
+        List<Future<JSONObject>> replies = new ArrayList<Future<JSONObject>>();
+        for (ShardConnection s : shards) {
+            replies.add(fanOut.submit(() -> s.call(probe)));
+        }
+
+        int best = -1;
+        int bestOrder = Integer.MAX_VALUE;
+        for (int i = 0; i < replies.size(); i++) {
+            JSONObject reply = await(replies.get(i));
+            if (reply.has("venue")) {
+                int order = venueOrder.get(reply.getString("venue"));
+                if (order < bestOrder) {
+                    best = i;
+                    bestOrder = order;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    private static JSONObject await(Future<JSONObject> reply) {
+        try {
+            return reply.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for shard", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Sends a command to one shard
+     * @return the command's output, or null if it printed nothing
+     */
+    private String forward(int shard, JSONObject json) {
+        JSONObject reply = shards.get(shard).call(json);
+        return reply.has("output") ? reply.getString("output") : null;
+    }
+
+    private static String rejected() {
+        JSONObject result = new JSONObject();
+        result.put("status", "rejected");
+        return result.toString(2);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fanOut.shutdownNow();
+        for (ShardConnection s : shards) {
+            s.close();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package unsw.venues;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Serves one shard of a partitioned venue hire system over TCP.
+ *
+ * Each request is a JSON command on its own line and gets exactly one JSON
+ * line back. Ordinary commands reply {"output": text} with the text the
+ * command would print, or {} if it prints nothing. The extra "probe" command
+ * takes the same fields as "request" and replies {"venue": name} with the
+ * first venue in this shard that could serve it, or {} if none can, without
+ * booking anything; with "every" and "count" it checks a recurring request.
+ * Failures reply {"error": message}.
+ *
+ * Changes always use the first-fit search, since the router picks the venue.
+ * With -Dvenues.replica.lag=n, list commands are answered by a read replica
+ * outside the lock the other commands share, once it has every change made
+ * before the list arrived; adding -Dvenues.replica.stale=true answers as
+ * soon as it is within n changes of the primary instead. With -Dvenues.snapshots=true,
+ * list and probe read an immutable snapshot instead, also without the lock.
+ * With -Dvenues.admission.deadline=ms, every other command, probes
+ * included, goes through a CommandScheduler with per command queues of
+ * -Dvenues.admission.capacity (default 256) and -Dvenues.admission.weights,
+ * e.g. request:4,list:2,change:2,recurring:1,report:1. Commands it sheds
+ * reply {"output": "{\"status\": \"busy\"}"}. Lists and probes answered from
+ * a replica or snapshot take no lock, so they skip the queues.
+ *
+ * A shard listens on loopback only, unless -Dvenues.shard.bind names the
+ * address to listen on, e.g. 0.0.0.0 so routers on other machines can
+ * reach it.
+ *
+ * Usage: ShardServer [port]
+ * @author Frank Merriman
+ */
+public class ShardServer implements Runnable {
+    private final VenueHireSystem system;
+    private final CommandScheduler scheduler;
+    private final ServerSocket server;
+
+    /**
+     * Constructor for ShardServer
+     * Initially the shard holds no venues, and it only accepts connections
+     * from the same machine
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ShardServer(int port) throws IOException {
+        this(port, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Constructor for ShardServer
+     * Initially the shard holds no venues
+     * @param port port to listen on, 0 for any free port
+     * @param address local address to listen on, such as 0.0.0.0 for every
+     * interface
+     * @throws IOException if the port cannot be bound
+     */
+    public ShardServer(int port, InetAddress address) throws IOException {
+        system = new VenueHireSystem();
+        system.venues().setIncrementalChanges(false);
+        Integer lag = Integer.getInteger("venues.replica.lag");
+        if (lag != null) {
+            system.addReplica(lag, Boolean.getBoolean("venues.replica.stale"));
+        }
+        if (Boolean.getBoolean("venues.snapshots")) {
+            system.addSnapshots();
+        }
+        scheduler = CommandScheduler.fromProperties(this::runCommand);
+        server = new ServerSocket(port, 50, address);
+    }
+
+    /**
+     * Gets the port the shard is listening on
+     * @return local port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Starts serving on a daemon thread
+     * @return this server
+     */
+    public ShardServer start() {
+        Thread thread = new Thread(this, "venues-shard-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Accepts connections until the server socket is closed. Commands from
+     * all connections run one at a time against the shard's system.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Socket client = server.accept();
+                Thread thread = new Thread(() -> serve(client), "venues-shard-client");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException e) {
+            if (!server.isClosed()) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections
+     */
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(handle(line).toString());
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            //client went away, nothing left to answer
+        }
+    }
+
+    /**
+     * Runs one request line
+     * @param line JSON command
+     * @return reply to send back
+     */
+    JSONObject handle(String line) {
+        JSONObject reply = new JSONObject();
+
+        try {
+            JSONObject command = new JSONObject(line);
+            ReadReplica replica = system.replica();
+            SnapshotWriter snapshots = system.snapshots();
+
+            if (snapshots != null && command.getString("command").equals("probe")
+                    && !command.has("every")) {
+                String found = snapshots.current().findVenue(command.getString("id"),
+                    IsoDates.parse(command.getString("start")),
+                    IsoDates.parse(command.getString("end")),
+                    command.getInt("small"), command.getInt("medium"), command.getInt("large"));
+                if (found != null) {
+                    reply.put("venue", found);
+                }
+                return reply;
+            }
+
+            if (snapshots != null && command.getString("command").equals("list")) {
+                JSONArray list = snapshots.current().listRooms(command.getString("venue"));
+                reply.put("output", list.toString(2));
+                return reply;
+            }
+
+            if (replica != null && command.getString("command").equals("list")) {
+                //waits for the changes committed before this list arrived,
+                //all of them unless stale reads are on
+                JSONArray list = system.listReplica(command.getString("venue"));
+                reply.put("output", list.toString(2));
+                return reply;
+            }
+
+            String output = scheduler == null ? runCommand(command) : scheduler.processCommand(command);
+            if (output != null) {
+                reply.put(command.getString("command").equals("probe") ? "venue" : "output", output);
+            }
+        } catch (RuntimeException e) {
+            reply.put("error", String.valueOf(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply.put("error", "interrupted");
+        }
+
+        return reply;
+    }
+
+    /**
+     * Runs a command or probe against the shard's system, holding its lock
+     * @param command JSON command
+     * @return what the command would print, or for a probe the name of the
+     * first venue able to serve it; null if there is nothing to reply with
+     */
+    private String runCommand(JSONObject command) {
+        synchronized (system) {
+            if (!command.getString("command").equals("probe")) {
+                return system.processCommand(command);
+            }
+
+            Venue found;
+            if (command.has("every")) {
+                found = system.venues().findSeriesVenue(command.getString("id"),
+                    IsoDates.parse(command.getString("start")),
+                    IsoDates.parse(command.getString("end")),
+                    command.getInt("every"), command.getInt("count"),
+                    command.getInt("small"), command.getInt("medium"), command.getInt("large"));
+            } else {
+                found = system.venues().findVenue(command.getString("id"),
+                    IsoDates.parse(command.getString("start")),
+                    IsoDates.parse(command.getString("end")),
+                    command.getInt("small"), command.getInt("medium"), command.getInt("large"));
+            }
+            return found == null ? null : found.getName();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        String bind = System.getProperty("venues.shard.bind");
+        InetAddress address = bind == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+        ShardServer shard = new ShardServer(port, address);
+        System.err.println("shard listening on " + address.getHostAddress() + ":" + shard.getPort());
+        shard.run();
+    }
+}
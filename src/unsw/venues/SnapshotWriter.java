@@ -0,0 +1,83 @@
+package unsw.venues;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps an immutable VenueSnapshot of a VenueHelper up to date from its
+ * change stream.
+ *
+ * Changes are folded into a working snapshot on the writing thread. When a
+ * command commits, the working snapshot becomes the current root in one
+ * atomic swap, so readers see either all of a command's changes or none.
+ * @author Frank Merriman
+ */
+public class SnapshotWriter implements ChangeListener {
+    private final AtomicReference<VenueSnapshot> root;
+    private VenueSnapshot working;
+    private final Map<String, ChangeEvent> placements;
+
+    /**
+     * Constructor for SnapshotWriter
+     * Initially the snapshot holds no venues
+     */
+    public SnapshotWriter() {
+        root = new AtomicReference<VenueSnapshot>(VenueSnapshot.empty());
+        working = VenueSnapshot.empty();
+        placements = new HashMap<String, ChangeEvent>();
+    }
+
+    /**
+     * Gets the snapshot as of the last committed command. Safe to call
+     * from any thread.
+     * @return the current snapshot
+     */
+    public VenueSnapshot current() {
+        return root.get();
+    }
+
+    /**
+     * Folds a change into the working snapshot
+     * @param event the committed change
+     */
+    @Override
+    public void changed(ChangeEvent event) {
+        switch (event.getType()) {
+
+        case ROOM_ADDED:
+            working = working.withRoom(event.getSequence(), event.getVenue(),
+                event.getRoom(), RoomSize.fromString(event.getSize()));
+            break;
+
+        case BOOKED:
+            working = working.withBooking(event.getSequence(), event.getVenue(), event.getRooms(),
+                Identifiers.hold(event.getID()), event.getStartDate(), event.getEndDate(),
+                event.getPeriod(), event.getCount());
+            placements.put(event.getID(), event);
+            break;
+
+        case CANCELLED:
+            //the booking's own event says where it went
+            ChangeEvent booked = placements.remove(event.getID());
+            if (booked != null) {
+                int handle = Identifiers.lookup(booked.getID());
+                working = working.withoutBooking(event.getSequence(), booked.getVenue(),
+                    booked.getRooms(), handle, booked.getStartDate(),
+                    booked.getPeriod(), booked.getCount());
+                //older snapshots keep the name in their own nodes
+                Identifiers.release(handle);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Publishes the working snapshot as the current root
+     * @param sequence sequence number of the command's last change
+     */
+    @Override
+    public void committed(long sequence) {
+        root.set(working);
+    }
+}
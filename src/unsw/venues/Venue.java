@@ -1,6 +1,7 @@
 package unsw.venues;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import org.json.JSONObject;
 import org.json.JSONArray;
@@ -10,27 +11,83 @@ import org.json.JSONArray;
  * @author Frank Merriman, z5257800@ad.unsw.edu.au
  */
 public class Venue {
-    private String venueName;
+    private int venueName;
     private RoomHelper rooms;
+    private Occupancy occupancy;
 
     /**
      * Constructor for Venue
      * Initially its RoomHelper has no rooms
-     * @param name name of the venue
+     * @param name interned handle of the name of the venue
      */
-    public Venue(String name) {
+    public Venue(int name) {
         venueName = name;
         rooms = new RoomHelper();
+        occupancy = new Occupancy();
     }
 
+    /**
+     * Constructor for Venue
+     * Initially its RoomHelper has no rooms
+     * @param name interned handle of the name of the venue
+     * @param strategy decides which free rooms serve a booking
+     */
+    public Venue(int name, AllocationStrategy strategy) {
+        venueName = name;
+        rooms = new RoomHelper(strategy);
+        occupancy = new Occupancy();
+    }
+
+
+    /**
+     * Get the name of the venue
+     * @return name of venue
+     */
+    public String getName() {
+        return Identifiers.name(venueName);
+    }
+
+    /**
+     * Gets every room in this venue
+     * @return read only list of rooms, in the order they were added
+     */
+    public List<Room> getRooms() {
+        return rooms.getRooms();
+    }
+
+    /**
+     * Gets the daily counts of booked rooms in this venue. VenueHelper
+     * keeps them up to date as it books and frees rooms.
+     * @return occupancy counters of this venue
+     */
+    public Occupancy getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Finds a room in this venue by name
+     * @param roomName interned handle of the name of the room
+     * @return the room, or null if there is no room with that name
+     */
+    public Room getRoom(int roomName) {
+        return rooms.getRoom(roomName);
+    }
+
+    /**
+     * Gets the number of rooms in the venue
+     * @return number of rooms
+     */
+    public int roomCount() {
+        return rooms.roomCount();
+    }
 
     /**
      * Evaluates if a given venueName is the same as this.venueName
-     * @param name name of venue
+     * @param name interned handle of the name of venue
      * @return true if name is same, else false
      */
-    public boolean compareVenueName(String name) {
-        if (venueName.equals(name)) {
+    public boolean compareVenueName(int name) {
+        if (venueName == name) {
             return true;
         }
 
@@ -39,19 +96,19 @@ public class Venue {
 
     /**
      * Adds a room to the current venue
-     * @param name name of addRoom
+     * @param name interned handle of the name of addRoom
      * @param size size of room (one of small, medium, large)
      */
-    public void addRoom(String name, String size) {
+    public void addRoom(int name, RoomSize size) {
         rooms.addRoom(name, size);
     }
 
     /**
      * Checks if a bookingID is unique across all rooms in this venue
-     * @param ID unique bookingID of a reservation
+     * @param ID interned handle of the unique bookingID of a reservation
      * @return false if ID is not unique across all rooms otherwise true
      */
-    public boolean uniqueID(String id) {
+    public boolean uniqueID(int id) {
         return rooms.uniqueID(id);
     }
 
@@ -66,7 +123,7 @@ public class Venue {
      * @param large number of large rooms requested
      * @return true if venue contains all rooms of requested size, free on requested dates otherwise false
      */
-    public boolean avaliableSpace(String ID, LocalDate start, LocalDate end,
+    public boolean avaliableSpace(int ID, LocalDate start, LocalDate end,
     int small, int medium, int large) {
         return rooms.avaliableSpace(ID, start, end, small, medium, large);
     }
@@ -75,7 +132,7 @@ public class Venue {
      * Adds bookings to the correct rooms in the current venue.
      * Assumes there is going to be free rooms avaliable to meet booking
      * requirements.
-     * @param id unique bookingID of a request
+     * @param id interned handle of the unique bookingID of a request
      * @param start start date for room bookings
      * @param end end date for room bookings
      * @param small number of small rooms requested
@@ -84,25 +141,135 @@ public class Venue {
      * @return JSONObject containing venuename and a list of rooms used to 
      * serve the booking request
      */
-    public JSONObject addBooking(String id, LocalDate start, LocalDate end,
+    public JSONObject addBooking(int id, LocalDate start, LocalDate end,
     int small, int medium, int large) {
+        return bookingResult(bookRooms(id, start, end, small, medium, large));
+    }
+
+    /**
+     * Adds bookings to the correct rooms in the current venue.
+     * Assumes there is going to be free rooms avaliable to meet booking
+     * requirements.
+     * @param id interned handle of the unique bookingID of a request
+     * @param start start date for room bookings
+     * @param end end date for room bookings
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return the rooms booked, in the order they were added to the venue
+     */
+    public List<Room> bookRooms(int id, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        return rooms.bookRooms(id, start, end, small, medium, large);
+    }
+
+    /**
+     * Checks if the current venue has enough rooms free for every occurrence
+     * of a recurring booking
+     * @param id interned handle of the unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return true if every occurrence can be served here, otherwise false
+     */
+    public boolean seriesSpace(int id, LocalDate start, LocalDate end, int period, int count,
+    int small, int medium, int large) {
+        return rooms.seriesRooms(id, start, end, period, count, small, medium, large) != null;
+    }
+
+    /**
+     * Books rooms in the current venue for every occurrence of a recurring
+     * booking, all or nothing
+     * @param id interned handle of the unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return the rooms booked, or an empty list if the venue lacks space
+     */
+    public List<Room> bookSeries(int id, LocalDate start, LocalDate end, int period, int count,
+    int small, int medium, int large) {
+        return rooms.bookSeries(id, start, end, period, count, small, medium, large);
+    }
+
+    /**
+     * Creates the result of a successful booking in this venue
+     * @param bookedRooms rooms serving the booking
+     * @return JSONObject containing venuename and a list of rooms used to 
+     * serve the booking request
+     */
+    public JSONObject bookingResult(List<Room> bookedRooms) {
         JSONObject result = new JSONObject();
 
-        JSONArray bookedRooms = rooms.addBooking(id, start, end, small, medium, large);
+        JSONArray roomNames = new JSONArray();
+        for (Room r : bookedRooms) {
+            roomNames.put(r.getName());
+        }
 
         result.put("status", "success");
-        result.put("venue", venueName);
-        result.put("rooms", bookedRooms);
+        result.put("venue", getName());
+        result.put("rooms", roomNames);
 
         return result;
     }
 
+    /**
+     * Creates a report of how many rooms of each size are booked each day,
+     * read from the occupancy counters rather than the bookings
+     * @param start first day of the report
+     * @param end last day of the report, not before start
+     * @return {"venue": venueName, "small": {...}, "medium": {...}, "large": {...}}
+     * where each size is {"rooms": number of rooms, "occupied": [rooms booked
+     * each day], "utilization": fraction of room days booked}
+     */
+    public JSONObject utilization(LocalDate start, LocalDate end) {
+        int[] sizes = new int[RoomSize.values().length];
+        for (Room r : rooms.getRooms()) {
+            sizes[r.getSize().ordinal()]++;
+        }
+
+        JSONObject report = new JSONObject();
+        report.put("venue", getName());
+
+        for (RoomSize size : RoomSize.values()) {
+            if (!size.isBookable()) {
+                continue;
+            }
+            int[] occupied = occupancy.occupied(size, start, end);
+
+            JSONArray days = new JSONArray();
+            long booked = 0;
+            for (int count : occupied) {
+                days.put(count);
+                booked = booked + count;
+            }
+
+            long capacity = (long) sizes[size.ordinal()] * occupied.length;
+
+            JSONObject info = new JSONObject();
+            info.put("rooms", sizes[size.ordinal()]);
+            info.put("occupied", days);
+            info.put("utilization", capacity == 0 ? 0 : Math.round(10000.0 * booked / capacity) / 10000.0);
+            report.put(size.toString(), info);
+        }
+
+        return report;
+    }
+
     /**
      * Removes record of bookings from RoomHelper
-     * @param id unique bookingID of a request
+     * @param id interned handle of the unique bookingID of a request
+     * @return true if this venue held the booking, otherwise false
      */
-    public void removeBooking(String ID) {
-        rooms.removeBooking(ID);
+    public boolean removeBooking(int ID) {
+        return rooms.removeBooking(ID);
     }
 
     /**
@@ -1,8 +1,15 @@
 package unsw.venues;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -11,17 +18,113 @@ import java.util.Iterator;
 
 /**
  * A venue helper for the hire system. It keeps track of all venues in the system.
+ *
+ * Every booking holding at least one room is also cached by ID along with
+ * the venue and rooms it occupies, so changes and cancellations go straight
+ * to the right rooms instead of searching every venue.
+ *
+ * Each venue's Occupancy counters are updated in the same places as the
+ * placements, so a utilization report never has to look at a booking.
+ *
+ * With a RejectionCache, a request shaped exactly like one that recently
+ * found no space is rejected without scanning the venues again.
  * @author Frank Merriman, z5257800@ad.unsw.edu.au
  */
 public class VenueHelper {
+    /** Longest range a report covers, about a century of days */
+    public static final long MAX_REPORT_DAYS = 36525;
+
     private List<Venue> venues;
+    private AllocationStrategy strategy;
+    private Map<String, Placement> placements;
+    private boolean incrementalChanges;
+    private RejectionCache rejections;
+    private List<ChangeListener> listeners;
+    private volatile long sequence;
+    private long committedSequence;
 
     /**
      * Constructor for VenueHelper
      * Originally it contains no venues
+     * Rooms are allocated with the configured strategy
      */
     public VenueHelper() {
+        this(AllocationStrategy.configured());
+    }
+
+    /**
+     * Constructor for VenueHelper
+     * Originally it contains no venues
+     * @param strategy decides which free rooms in a venue serve a booking
+     */
+    public VenueHelper(AllocationStrategy strategy) {
         venues = new ArrayList<Venue>();
+        this.strategy = strategy;
+        placements = new HashMap<String, Placement>();
+        incrementalChanges = "incremental".equals(System.getProperty("venues.change"));
+        setRejectionCache(Integer.getInteger("venues.rejection.cache", 0));
+        listeners = new ArrayList<ChangeListener>();
+    }
+
+    /**
+     * Subscribes to the change stream. Every committed mutation after this
+     * call is passed to the listener in order.
+     * @param listener receiver of change events
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the sequence number of the last published change
+     * @return sequence of the last change, 0 if nothing has changed
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Hands a change to every listener
+     * @param event the committed change
+     */
+    private void publish(ChangeEvent event) {
+        sequence = event.getSequence();
+        for (ChangeListener l : listeners) {
+            l.changed(event);
+        }
+    }
+
+    /**
+     * Tells every listener that a command has published all its changes
+     */
+    private void commit() {
+        if (sequence != committedSequence) {
+            committedSequence = sequence;
+            for (ChangeListener l : listeners) {
+                l.committed(committedSequence);
+            }
+        }
+    }
+
+    /**
+     * Sets whether a change first tries to keep a booking in the rooms it
+     * already holds. When off, every change is placed like a new request,
+     * in the first venue with space.
+     * Defaults to -Dvenues.change=incremental
+     * @param incremental true to try the booking's current rooms first
+     */
+    public void setIncrementalChanges(boolean incremental) {
+        incrementalChanges = incremental;
+    }
+
+    /**
+     * Sets how many rejected request shapes are remembered. Any cached
+     * shapes are dropped.
+     * Defaults to -Dvenues.rejection.cache=n
+     * @param capacity largest number of shapes remembered, 0 for no cache
+     */
+    public void setRejectionCache(int capacity) {
+        rejections = capacity > 0 ? new RejectionCache(capacity) : null;
     }
 
     /**
@@ -34,21 +137,33 @@ public class VenueHelper {
     public void addRoom(String venue, String room, String size) {
         Iterator<Venue> venueItr = venues.iterator();
         boolean exists = false;
+        int venueName = Identifiers.intern(venue);
+        int roomName = Identifiers.intern(room);
+        RoomSize roomSize = RoomSize.fromString(size);
 
         while (venueItr.hasNext() && !exists) {
             Venue curr = venueItr.next();
 
-            if (curr.compareVenueName(venue)) {
-                curr.addRoom(room, size);
+            if (curr.compareVenueName(venueName)) {
+                curr.addRoom(roomName, roomSize);
                 exists = true;
             }
         }
 
         if (!exists) {
             Venue newVenue = addVenue(venue);
-            newVenue.addRoom(room, size);
+            newVenue.addRoom(roomName, roomSize);
+        }
+
+        //a new room could serve any rejected shape
+        if (rejections != null) {
+            rejections.bump();
+        }
+
+        if (!listeners.isEmpty()) {
+            publish(ChangeEvent.roomAdded(sequence + 1, venue, room, size));
+            commit();
         }
-        
     }
 
     /**
@@ -58,7 +173,7 @@ public class VenueHelper {
      * @return the newly created Venue
      */
     public Venue addVenue(String venueName) {
-        venues.add(new Venue(venueName));
+        venues.add(new Venue(Identifiers.intern(venueName), strategy));
         return venues.get(venues.size() - 1);
     }
 
@@ -80,27 +195,251 @@ public class VenueHelper {
     public JSONObject addBooking(String id, LocalDate start, LocalDate end,
     int small, int medium, int large) {
         JSONObject result = new JSONObject();
+        BookingEvents.AddBooking event = new BookingEvents.AddBooking();
+        event.begin();
+        event.bookingID = id;
 
         //check ID is original across entire system
-        for (Venue v : venues) {
-            if (v.uniqueID(id) == false) {
+        long t = Metrics.start();
+        boolean unique = !placements.containsKey(id);
+        Metrics.record(Metrics.Stage.UNIQUE_CHECK, t);
+
+        if (!unique) {
+            Metrics.reject(Metrics.Rejection.DUPLICATE_ID);
+            event.commit();
+            result.put("status", "rejected");
+            return result;
+        }
+
+        //the same shape found no space last time and none has been freed since
+        if (rejections != null) {
+            t = Metrics.start();
+            boolean cached = rejections.isRejected(start, end, small, medium, large);
+            Metrics.record(Metrics.Stage.REJECTION_CACHE, t);
+
+            if (cached) {
+                Metrics.reject(Metrics.Rejection.NO_CAPACITY);
+                event.commit();
                 result.put("status", "rejected");
                 return result;
             }
         }
 
         //Check there is enough rooms avaliable in a given venue
+        Venue found = findVenue(Identifiers.lookup(id), start, end, small, medium, large, event);
+
+        if (found != null) {
+            t = Metrics.start();
+            result = book(found, id, start, end, small, medium, large);
+            Metrics.record(Metrics.Stage.BOOKING_INSERT, t);
+            commit();
+            event.commit();
+            return result;
+        }
+
+        //Case runs if no venues able to process request
+        if (rejections != null) {
+            rejections.reject(start, end, small, medium, large);
+        }
+        Metrics.reject(Metrics.Rejection.NO_CAPACITY);
+        event.commit();
+        result.put("status", "rejected");
+        return result;
+    }
+
+    /**
+     * Finds the first venue, in the order venues were added, with enough
+     * rooms free to serve a request
+     * @param id unique bookingID of a request, its own bookings do not block it
+     * @param start start date for room bookings
+     * @param end end date for room bookings
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return the first venue able to serve the request, or null if none can
+     */
+    public Venue findVenue(String id, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        return findVenue(Identifiers.lookup(id), start, end, small, medium, large, null);
+    }
+
+    /**
+     * Finds the first venue able to serve a request, recording the outcome
+     * of the search on a flight recorder event
+     * @param id interned handle of the bookingID, or Identifiers.NONE
+     * @param event event to fill in, may be null
+     * @return the first venue able to serve the request, or null if none can
+     */
+    private Venue findVenue(int id, LocalDate start, LocalDate end,
+    int small, int medium, int large, BookingEvents.Operation event) {
+        long t = Metrics.start();
+        Venue found = null;
+        int scanned = 0;
+
         for (Venue v : venues) {
+            scanned = scanned + 1;
             if (v.avaliableSpace(id, start, end, small, medium, large)) {
-                return v.addBooking(id, start, end, small, medium, large);
+                found = v;
+                break;
             }
         }
 
-        //Case runs if no venues able to process request
+        Metrics.record(Metrics.Stage.AVAILABILITY_SCAN, t);
+
+        if (event != null && event.isEnabled()) {
+            event.venuesScanned = scanned;
+            event.roomsScanned = roomsIn(scanned);
+            event.accepted = found != null;
+            if (found != null) {
+                event.venue = found.getName();
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Attempts to book the same rooms for every occurrence of a recurring
+     * request. Occurrences start every period days from start, each lasting
+     * as long as the first. All occurrences are checked in one pass over each
+     * venue's bookings and booked together in one venue, or not at all.
+     * The bookingID must be unique as for any other request.
+     * @param id unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences,
+     * longer than an occurrence
+     * @param count number of occurrences, from 1 to BookingSeries.MAX_COUNT,
+     * the last ending by LocalDate.MAX
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return On success: {"venue": venueName, "rooms": [roomNames], "status": "success"}
+     * On failure: {"status": "rejected}
+     */
+    public JSONObject addRecurringBooking(String id, LocalDate start, LocalDate end,
+    int period, int count, int small, int medium, int large) {
+        JSONObject result = new JSONObject();
+        BookingEvents.AddBooking event = new BookingEvents.AddBooking();
+        event.begin();
+        event.bookingID = id;
+
+        long t = Metrics.start();
+        boolean unique = !placements.containsKey(id);
+        Metrics.record(Metrics.Stage.UNIQUE_CHECK, t);
+
+        if (!unique) {
+            Metrics.reject(Metrics.Rejection.DUPLICATE_ID);
+            event.commit();
+            result.put("status", "rejected");
+            return result;
+        }
+
+        //overlapping occurrences can never all be booked, and too many would take too long
+        if (!BookingSeries.isValid(start, end, period, count)) {
+            event.commit();
+            result.put("status", "rejected");
+            return result;
+        }
+
+        Venue found = findSeriesVenue(Identifiers.lookup(id), start, end, period, count,
+            small, medium, large, event);
+
+        if (found != null) {
+            t = Metrics.start();
+            int handle = Identifiers.hold(id);
+            List<Room> booked = found.bookSeries(handle, start, end, period, count, small, medium, large);
+
+            if (booked.isEmpty()) {
+                Identifiers.release(handle);
+            } else {
+                Placement placement = new Placement(handle, found, booked, start, end, period, count);
+                placements.put(id, placement);
+                occupy(placement, 1);
+
+                if (!listeners.isEmpty()) {
+                    publish(ChangeEvent.bookedSeries(sequence + 1, id, found.getName(),
+                        roomNames(booked), start, end, period, count));
+                    commit();
+                }
+            }
+
+            Metrics.record(Metrics.Stage.BOOKING_INSERT, t);
+            event.commit();
+            return found.bookingResult(booked);
+        }
+
+        Metrics.reject(Metrics.Rejection.NO_CAPACITY);
+        event.commit();
         result.put("status", "rejected");
         return result;
     }
 
+    /**
+     * Finds the first venue, in the order venues were added, with enough
+     * rooms free for every occurrence of a recurring request
+     * @param id unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param period days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return the first venue able to serve every occurrence, or null if none can
+     */
+    public Venue findSeriesVenue(String id, LocalDate start, LocalDate end,
+    int period, int count, int small, int medium, int large) {
+        if (!BookingSeries.isValid(start, end, period, count)) {
+            return null;
+        }
+
+        return findSeriesVenue(Identifiers.lookup(id), start, end, period, count,
+            small, medium, large, null);
+    }
+
+    private Venue findSeriesVenue(int id, LocalDate start, LocalDate end,
+    int period, int count, int small, int medium, int large, BookingEvents.Operation event) {
+        long t = Metrics.start();
+        Venue found = null;
+        int scanned = 0;
+
+        for (Venue v : venues) {
+            scanned = scanned + 1;
+            if (v.seriesSpace(id, start, end, period, count, small, medium, large)) {
+                found = v;
+                break;
+            }
+        }
+
+        Metrics.record(Metrics.Stage.AVAILABILITY_SCAN, t);
+
+        if (event != null && event.isEnabled()) {
+            event.venuesScanned = scanned;
+            event.roomsScanned = roomsIn(scanned);
+            event.accepted = found != null;
+            if (found != null) {
+                event.venue = found.getName();
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Counts the rooms in the first few venues
+     * @param venueCount number of venues to count, from the first added
+     * @return total number of rooms in those venues
+     */
+    private int roomsIn(int venueCount) {
+        int rooms = 0;
+        for (int i = 0; i < venueCount; i++) {
+            rooms = rooms + venues.get(i).roomCount();
+        }
+
+        return rooms;
+    }
+
     /**
      * Attempts to fulfill a request to change an existing booking.
      * Changes can include number of rooms and the dates they are wanted for. 
@@ -118,17 +457,54 @@ public class VenueHelper {
     public JSONObject changeBooking(String id, LocalDate start, LocalDate end,
     int small, int medium, int large) {
         JSONObject result = new JSONObject();
+        BookingEvents.ChangeBooking event = new BookingEvents.ChangeBooking();
+        event.begin();
+        event.bookingID = id;
 
-        
-        for (Venue v : venues) {
-            if (v.avaliableSpace(id, start, end, small, medium, large)) {
-                removeBooking(id);
-                return v.addBooking(id, start, end, small, medium, large);
+        //a small shift often still fits in the rooms already held
+        Placement current = placements.get(id);
+        if (incrementalChanges && current != null
+                && current.canMoveTo(start, end, small, medium, large)) {
+            long t = Metrics.start();
+            freed(current);
+            occupy(current, -1);
+            current.moveTo(start, end);
+            occupy(current, 1);
+            result = current.venue.bookingResult(current.rooms);
+            Metrics.record(Metrics.Stage.BOOKING_INSERT, t);
+
+            if (!listeners.isEmpty()) {
+                publish(ChangeEvent.cancelled(sequence + 1, id));
+                publish(ChangeEvent.booked(sequence + 1, id, current.venue.getName(),
+                    roomNames(current.rooms), start, end));
+                commit();
             }
+
+            event.venue = current.venue.getName();
+            event.roomsScanned = current.rooms.size();
+            event.accepted = true;
+            event.commit();
+            return result;
         }
 
+        Venue found = findVenue(Identifiers.lookup(id), start, end, small, medium, large, event);
+
+        if (found != null) {
+            long t = Metrics.start();
+            removeFromVenues(id);
+            result = book(found, id, start, end, small, medium, large);
+            Metrics.record(Metrics.Stage.BOOKING_INSERT, t);
+            commit();
+            event.commit();
+            return result;
+        }
 
         //Case runs if no venues able to process request
+        if (rejections != null) {
+            rejections.reject(start, end, small, medium, large);
+        }
+        Metrics.reject(Metrics.Rejection.NO_CAPACITY);
+        event.commit();
         result.put("status", "rejected");
         return result;
     }
@@ -139,9 +515,267 @@ public class VenueHelper {
      * @param id unique bookingID of a request
      */
     public void removeBooking(String id) {
+        BookingEvents.RemoveBooking event = new BookingEvents.RemoveBooking();
+        event.begin();
+
+        Venue holder = removeFromVenues(id);
+        commit();
+
+        if (event.shouldCommit()) {
+            event.bookingID = id;
+            event.accepted = holder != null;
+            if (holder != null) {
+                event.venue = holder.getName();
+                event.venuesScanned = 1;
+                event.roomsScanned = holder.roomCount();
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Books rooms in a venue and caches where the booking went
+     * @param venue venue with enough free rooms for the request
+     * @return On success: {"venue": venueName, "rooms": [roomNames], "status": "success"}
+     */
+    private JSONObject book(Venue venue, String id, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        int handle = Identifiers.hold(id);
+        List<Room> booked = venue.bookRooms(handle, start, end, small, medium, large);
+
+        //a request for no rooms succeeds but leaves nothing to find later
+        if (booked.isEmpty()) {
+            Identifiers.release(handle);
+        } else {
+            Placement placement = new Placement(handle, venue, booked, start, end, 0, 1);
+            placements.put(id, placement);
+            occupy(placement, 1);
+
+            if (!listeners.isEmpty()) {
+                publish(ChangeEvent.booked(sequence + 1, id, venue.getName(),
+                    roomNames(booked), start, end));
+            }
+        }
+
+        return venue.bookingResult(booked);
+    }
+
+    /**
+     * Removes every booking with a matching id from the venue holding it
+     * @param id unique bookingID of a request
+     * @return the venue that held the booking, or null if none did
+     */
+    private Venue removeFromVenues(String id) {
+        Placement placement = placements.remove(id);
+        if (placement == null) {
+            return null;
+        }
+
+        for (Room r : placement.rooms) {
+            r.removeBooking(placement.id);
+        }
+        Identifiers.release(placement.id);
+        freed(placement);
+        occupy(placement, -1);
+
+        if (!listeners.isEmpty()) {
+            publish(ChangeEvent.cancelled(sequence + 1, id));
+        }
+
+        return placement.venue;
+    }
+
+    /**
+     * Replays a booking from another VenueHelper's change stream into the
+     * exact rooms it was given there, without searching or checking space
+     * @param id unique bookingID
+     * @param venue name of the venue holding the booking
+     * @param rooms names of the booked rooms, in venue order
+     * @param start first day of the booking, or of its first occurrence
+     * @param end last day of the booking, or of its first occurrence
+     * @param period days between occurrences, 0 for a one off booking
+     * @param count number of occurrences
+     */
+    void applyBooking(String id, String venue, List<String> rooms,
+    LocalDate start, LocalDate end, int period, int count) {
+        int venueName = Identifiers.lookup(venue);
+        Venue holder = null;
         for (Venue v : venues) {
-            v.removeBooking(id);
+            if (v.compareVenueName(venueName)) {
+                holder = v;
+            }
         }
+
+        int handle = Identifiers.hold(id);
+        List<Room> booked = new ArrayList<Room>();
+        for (String name : rooms) {
+            Room r = holder.getRoom(Identifiers.lookup(name));
+            if (period > 0) {
+                r.addSeries(handle, start, end, period, count);
+            } else {
+                r.addBooking(handle, start, end);
+            }
+            booked.add(r);
+        }
+
+        Placement placement = period > 0
+            ? new Placement(handle, holder, booked, start, end, period, count)
+            : new Placement(handle, holder, booked, start, end, 0, 1);
+        placements.put(id, placement);
+        occupy(placement, 1);
+
+        if (!listeners.isEmpty()) {
+            publish(period > 0
+                ? ChangeEvent.bookedSeries(sequence + 1, id, venue, rooms, start, end, period, count)
+                : ChangeEvent.booked(sequence + 1, id, venue, rooms, start, end));
+            commit();
+        }
+    }
+
+    /**
+     * Replays a cancellation from another VenueHelper's change stream
+     * @param id unique bookingID
+     */
+    void applyCancel(String id) {
+        removeFromVenues(id);
+        commit();
+    }
+
+    /**
+     * Drops cached rejections that a booking's dates could now serve
+     * @param placement booking whose rooms are being freed
+     */
+    private void freed(Placement placement) {
+        if (rejections != null) {
+            rejections.freed(placement.start, placement.last());
+        }
+    }
+
+    /**
+     * Counts a booking into, or out of, its venue's occupancy
+     * @param placement booking being added or freed
+     * @param delta 1 when the booking is added, -1 when it is freed
+     */
+    private void occupy(Placement placement, int delta) {
+        Occupancy occupancy = placement.venue.getOccupancy();
+        for (Room r : placement.rooms) {
+            for (int k = 0; k < placement.count; k++) {
+                occupancy.add(r.getSize(), placement.start.plusDays((long) k * placement.period),
+                    placement.end.plusDays((long) k * placement.period), delta);
+            }
+        }
+    }
+
+    /**
+     * Gets the names of some rooms
+     * @param rooms rooms to name
+     * @return names in the same order
+     */
+    private static List<String> roomNames(List<Room> rooms) {
+        List<String> names = new ArrayList<String>();
+        for (Room r : rooms) {
+            names.add(r.getName());
+        }
+
+        return names;
+    }
+
+    /**
+     * Where a booking is held: its venue, the rooms it occupies, in the
+     * order they were added to the venue, and the dates it holds them for
+     */
+    private static class Placement {
+        private final int id;
+        private final Venue venue;
+        private final List<Room> rooms;
+        private LocalDate start;
+        private LocalDate end;
+        private int period;
+        private int count;
+
+        Placement(int id, Venue venue, List<Room> rooms,
+        LocalDate start, LocalDate end, int period, int count) {
+            this.id = id;
+            this.venue = venue;
+            this.rooms = rooms;
+            this.start = start;
+            this.end = end;
+            this.period = period;
+            this.count = count;
+        }
+
+        /**
+         * Gets the last day of the last occurrence
+         * @return last day the booking holds its rooms
+         */
+        LocalDate last() {
+            return end.plusDays((long) (count - 1) * period);
+        }
+
+        /**
+         * Checks if the held rooms match the requested sizes exactly and are
+         * all free on the new dates, looking only at each room's bookings
+         * either side of the dates
+         * @return true if the booking can stay in its rooms
+         */
+        boolean canMoveTo(LocalDate start, LocalDate end,
+        int small, int medium, int large) {
+            int[] wanted = RoomSize.counts(small, medium, large);
+
+            for (Room r : rooms) {
+                wanted[r.getSize().ordinal()]--;
+            }
+
+            for (int i = 0; i < wanted.length; i++) {
+                if (wanted[i] != 0) {
+                    return false;
+                }
+            }
+
+            for (Room r : rooms) {
+                if (r.slackAround(id, start, end) < 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Moves the booking to new dates in every held room
+         */
+        void moveTo(LocalDate start, LocalDate end) {
+            for (Room r : rooms) {
+                r.removeBooking(id);
+                r.addBooking(id, start, end);
+            }
+            this.start = start;
+            this.end = end;
+            period = 0;
+            count = 1;
+        }
+    }
+
+    /**
+     * Reports how many rooms of each size every venue has booked on each
+     * day of a range, read from the occupancy counters
+     * @param start first day of the report
+     * @param end last day of the report
+     * @return JSONArray of Venue.utilization for each venue in the order
+     * they were added, empty if end is before start or the range is longer
+     * than MAX_REPORT_DAYS
+     */
+    public JSONArray report(LocalDate start, LocalDate end) {
+        JSONArray report = new JSONArray();
+        if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= MAX_REPORT_DAYS) {
+            return report;
+        }
+
+        for (Venue v : venues) {
+            report.put(v.utilization(start, end));
+        }
+
+        return report;
     }
 
     /**
@@ -152,14 +786,59 @@ public class VenueHelper {
      * @return JSONArray containing all rooms in a given venue and their data
      */
     public JSONArray listRooms(String venue) {
-        JSONArray venueRoomsDetails = new JSONArray();
+        return listRooms(venue, v -> v.listRooms(), new JSONArray());
+    }
+
+    /**
+     * Formats all rooms in a given venue and their bookings straight to
+     * text, without building a JSONArray
+     * @param venue name of the venue
+     * @param writer writer to format with
+     * @return the same text as listRooms(venue).toString(2)
+     */
+    public String writeRooms(String venue, ResultWriter writer) {
+        return writer.listRooms(listRooms(venue, Venue::getRooms, Collections.<Room>emptyList()));
+    }
+
+    /**
+     * Formats all rooms in a given venue and their bookings straight onto
+     * a writer, without building a JSONArray or a String
+     * @param venue name of the venue
+     * @param writer writer to format with
+     * @param out receives the same text as listRooms(venue).toString(2)
+     * @throws IOException if writing fails
+     */
+    public void writeRooms(String venue, ResultWriter writer, Writer out) throws IOException {
+        writer.listRooms(listRooms(venue, Venue::getRooms, Collections.<Room>emptyList()), out);
+    }
+
+    /**
+     * Finds a venue by name and renders its rooms
+     * @param venue name of the venue
+     * @param render turns the venue into a result
+     * @param missing result if there is no such venue
+     * @return the rendered venue, or missing
+     */
+    private <T> T listRooms(String venue, Function<Venue, T> render, T missing) {
+        T venueRoomsDetails = missing;
+        BookingEvents.ListRooms event = new BookingEvents.ListRooms();
+        event.begin();
+        event.venue = venue;
 
+        int venueName = Identifiers.lookup(venue);
+        int scanned = 0;
         for (Venue v : venues) {
-            if (v.compareVenueName(venue)) { //should only trigger once
-                return v.listRooms();
+            scanned = scanned + 1;
+            if (v.compareVenueName(venueName)) { //should only trigger once
+                venueRoomsDetails = render.apply(v);
+                event.roomsScanned = v.roomCount();
+                event.accepted = true;
+                break;
             }
         }
 
+        event.venuesScanned = scanned;
+        event.commit();
         return venueRoomsDetails;
     }
-}
\ No newline at end of file
+}
@@ -3,8 +3,13 @@
  */
 package unsw.venues;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.time.LocalDate;
-import java.util.Scanner;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -19,8 +24,13 @@ import org.json.JSONObject;
  * @author Frank Merriman, z5257800@ad.unsw.edu.au
  *
  */
-public class VenueHireSystem {
+public class VenueHireSystem implements CommandProcessor {
+    private static final boolean DIRECT = "direct".equals(System.getProperty("venues.serializer"));
+
     private VenueHelper venues;
+    private ReadReplica replica;
+    private boolean staleReads;
+    private SnapshotWriter snapshots;
 
     /**
      * Constructs a venue hire system. Initially, the system contains no venues,
@@ -30,11 +40,101 @@ public class VenueHireSystem {
         venues = new VenueHelper();
     }
 
+    /**
+     * Constructs a venue hire system that allocates rooms with a given
+     * strategy. Initially, the system contains no venues, rooms, or bookings.
+     * @param strategy decides which free rooms in a venue serve a booking
+     */
+    public VenueHireSystem(AllocationStrategy strategy) {
+        venues = new VenueHelper(strategy);
+    }
+
+    /**
+     * Gets the helper holding this system's venues
+     * @return the system's VenueHelper
+     */
+    VenueHelper venues() {
+        return venues;
+    }
+
+    /**
+     * Starts a read replica fed from this system's change stream. Once
+     * added, list commands are answered by the replica after it has caught
+     * up with every change made so far.
+     * @param maxLag number of changes the replica may fall behind by
+     * @return the replica
+     */
+    public ReadReplica addReplica(int maxLag) {
+        return addReplica(maxLag, false);
+    }
+
+    /**
+     * Starts a read replica fed from this system's change stream. Once
+     * added, list commands are answered by the replica.
+     * @param maxLag number of changes the replica may fall behind by
+     * @param staleReads true to answer lists as soon as the replica is
+     * within maxLag changes, so a list may miss that many of the latest
+     * changes; false to wait for every change made so far
+     * @return the replica
+     */
+    public ReadReplica addReplica(int maxLag, boolean staleReads) {
+        replica = new ReadReplica(maxLag);
+        this.staleReads = staleReads;
+        venues.addChangeListener(replica);
+        return replica;
+    }
+
+    /**
+     * Keeps an immutable snapshot of this system, swapped in after every
+     * command that changes it. Once added, list commands read the current
+     * snapshot without touching the live venues.
+     * @return the writer holding the current snapshot
+     */
+    public SnapshotWriter addSnapshots() {
+        snapshots = new SnapshotWriter();
+        venues.addChangeListener(snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Gets the writer holding this system's snapshots
+     * @return the writer, or null if snapshots were not added
+     */
+    SnapshotWriter snapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Gets the read replica serving list commands
+     * @return the replica, or null if none was added
+     */
+    ReadReplica replica() {
+        return replica;
+    }
+
     /**
      * Reads a command from some JSONObject and sends parsed data to respective method
      * @param json contains command type and paramters for command to run with
+     * @return the command's output formatted as it is printed, or null if
+     * the command produces no output
+     */
+    @Override
+    public String processCommand(JSONObject json) {
+        return serialize(execute(json));
+    }
+
+    /**
+     * Runs a command without formatting its result, so formatting can
+     * happen later or on another thread. Command timings cover execution
+     * only; formatting is timed separately.
+     * @param json contains command type and paramters for command to run with
+     * @return JSONObject or JSONArray result, String for stats, or null if
+     * the command produces no output
      */
-    private void processCommand(JSONObject json) {
+    @Override
+    public Object execute(JSONObject json) {
+        long t = Metrics.start();
+
         switch (json.getString("command")) {
 
         case "room":
@@ -42,49 +142,166 @@ public class VenueHireSystem {
             String room = json.getString("room");
             String size = json.getString("size");
             addRoom(venue, room, size);
-            break;
+            Metrics.record(Metrics.Stage.ROOM, t);
+            return null;
 
         case "request":
             String id = json.getString("id");
-            LocalDate start = LocalDate.parse(json.getString("start"));
-            LocalDate end = LocalDate.parse(json.getString("end"));
+            LocalDate start = IsoDates.parse(json.getString("start"));
+            LocalDate end = IsoDates.parse(json.getString("end"));
             int small = json.getInt("small");
             int medium = json.getInt("medium");
             int large = json.getInt("large");
 
             JSONObject result = addRequest(id, start, end, small, medium, large);
 
-            System.out.println(result.toString(2));
-            break;
+            Metrics.record(Metrics.Stage.REQUEST, t);
+            return result;
 
         
         case "change":
             id = json.getString("id");
-            start = LocalDate.parse(json.getString("start"));
-            end = LocalDate.parse(json.getString("end"));
+            start = IsoDates.parse(json.getString("start"));
+            end = IsoDates.parse(json.getString("end"));
             small = json.getInt("small");
             medium = json.getInt("medium");
             large = json.getInt("large");
 
             result = changeRequest(id, start, end, small, medium, large);
 
-            System.out.println(result.toString(2));
-            break;
+            Metrics.record(Metrics.Stage.CHANGE, t);
+            return result;
+
+        case "recurring":
+            id = json.getString("id");
+            start = IsoDates.parse(json.getString("start"));
+            end = IsoDates.parse(json.getString("end"));
+            int every = json.getInt("every");
+            int count = json.getInt("count");
+            small = json.getInt("small");
+            medium = json.getInt("medium");
+            large = json.getInt("large");
+
+            result = addRecurringRequest(id, start, end, every, count, small, medium, large);
+
+            Metrics.record(Metrics.Stage.RECURRING, t);
+            return result;
 
         case "cancel":
             id = json.getString("id");
 
             cancelRequest(id);
-            break;
+            Metrics.record(Metrics.Stage.CANCEL, t);
+            return null;
 
         case "list":
             venue = json.getString("venue");
 
+            //the live venue can't be formatted later, so capture its text now
+            if (DIRECT && snapshots == null && replica == null) {
+                String listed = venues.writeRooms(venue, ResultWriter.local());
+                Metrics.record(Metrics.Stage.LIST, t);
+                return listed;
+            }
+
             JSONArray list = listRooms(venue);
 
-            System.out.println(list.toString(2));
-            break;
+            Metrics.record(Metrics.Stage.LIST, t);
+            return list;
+
+        case "report":
+            start = IsoDates.parse(json.getString("start"));
+            end = IsoDates.parse(json.getString("end"));
+
+            JSONArray report = report(start, end);
+
+            Metrics.record(Metrics.Stage.REPORT, t);
+            return report;
+
+        case "stats":
+            return Metrics.report().toString(2);
         }
+
+        return null;
+    }
+
+    /**
+     * Runs a command and writes its output the way it is printed. With
+     * -Dvenues.serializer=direct a list of the live venues goes straight
+     * from its rooms onto out; nothing runs before it is written, so unlike
+     * execute it need not capture the text first.
+     * @param json contains command type and paramters for command to run with
+     * @param out destination for the output
+     * @return true if anything was written, false if the command produces
+     * no output
+     * @throws IOException if writing fails
+     */
+    @Override
+    public boolean execute(JSONObject json, Writer out) throws IOException {
+        if (!DIRECT || snapshots != null || replica != null || !json.getString("command").equals("list")) {
+            return write(execute(json), out);
+        }
+
+        long t = Metrics.start();
+        venues.writeRooms(json.getString("venue"), ResultWriter.local(), out);
+        Metrics.record(Metrics.Stage.LIST, t);
+        out.write(System.lineSeparator());
+        return true;
+    }
+
+    /**
+     * Formats a command result the way it is printed. With
+     * -Dvenues.serializer=direct a ResultWriter formats it instead of
+     * org.json, giving the same text with less garbage.
+     * @param result JSONObject or JSONArray holding the result, an already
+     * formatted String, or null
+     * @return result indented by 2 spaces, or null if result is null
+     */
+    static String serialize(Object result) {
+        if (result == null || result instanceof String) {
+            return (String) result;
+        }
+
+        long t = Metrics.start();
+        String output;
+
+        if (DIRECT) {
+            output = ResultWriter.local().write(result);
+        } else if (result instanceof JSONArray) {
+            output = ((JSONArray) result).toString(2);
+        } else {
+            output = ((JSONObject) result).toString(2);
+        }
+
+        Metrics.record(Metrics.Stage.SERIALIZE, t);
+        return output;
+    }
+
+    /**
+     * Writes a command result the way it is printed, followed by a line
+     * separator. With -Dvenues.serializer=direct the text goes straight
+     * from a ResultWriter to out, without making a String.
+     * @param result JSONObject or JSONArray holding the result, an already
+     * formatted String, or null
+     * @param out destination for the output
+     * @return true if anything was written, false if result is null
+     * @throws IOException if writing fails
+     */
+    static boolean write(Object result, Writer out) throws IOException {
+        if (result == null) {
+            return false;
+        }
+
+        if (DIRECT && !(result instanceof String)) {
+            long t = Metrics.start();
+            ResultWriter.local().write(result, out);
+            Metrics.record(Metrics.Stage.SERIALIZE, t);
+        } else {
+            out.write(serialize(result));
+        }
+
+        out.write(System.lineSeparator());
+        return true;
     }
 
     /**
@@ -117,6 +334,27 @@ public class VenueHireSystem {
         return venues.addBooking(id, start, end, small, medium, large);
     }
 
+    /**
+     * Attempts to process a request to book the same rooms on a regular
+     * schedule, such as every week for a year. All occurrences must fit in a
+     * single venue, otherwise none are booked. Cancelling the id removes
+     * every occurrence, and changing it replaces them with a single booking.
+     * @param id unique bookingID of a request
+     * @param start first day of the first occurrence
+     * @param end last day of the first occurrence
+     * @param every days between the starts of consecutive occurrences
+     * @param count number of occurrences
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return On success: {"venue": venueName, "rooms": [roomNames], "status": "success"}
+     * On failure: {"status": "rejected}
+     */
+    public JSONObject addRecurringRequest(String id, LocalDate start, LocalDate end,
+            int every, int count, int small, int medium, int large) {
+        return venues.addRecurringBooking(id, start, end, every, count, small, medium, large);
+    }
+
     /**
      * Attempts to process a request to change an existing booking.
      * Changes can include number of rooms and the dates they are wanted for. 
@@ -154,24 +392,108 @@ public class VenueHireSystem {
      * @return JSONArray containing all rooms in a given venue and their data
      */
     private JSONArray listRooms(String venue) {
-        return venues.listRooms(venue);
+        if (snapshots != null) {
+            return snapshots.current().listRooms(venue);
+        }
+        if (replica == null) {
+            return venues.listRooms(venue);
+        }
+
+        try {
+            return listReplica(venue);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return venues.listRooms(venue);
+        }
+    }
+
+    /**
+     * Lists all rooms in a given venue from the read replica, without
+     * taking any lock the other commands share
+     * @param venue name of the venue
+     * @return JSONArray containing all rooms in a given venue and their data,
+     * missing at most the replica's maxLag latest changes if stale reads are on
+     * @throws InterruptedException if interrupted while the replica catches up
+     */
+    JSONArray listReplica(String venue) throws InterruptedException {
+        if (staleReads) {
+            return replica.listRoomsWithinLag(venue, venues.getSequence());
+        }
+        return replica.listRooms(venue, venues.getSequence());
     }
 
+    /**
+     * Reports daily room utilization of every venue by size
+     * @param start first day of the report
+     * @param end last day of the report
+     * @return JSONArray with one entry per venue, in the order venues were added:
+     * {"venue": venueName, "small": {"rooms": n, "occupied": [rooms booked each day],
+     * "utilization": fraction}, "medium": {...}, "large": {...}}
+     */
+    public JSONArray report(LocalDate start, LocalDate end) {
+        return venues.report(start, end);
+    }
 
 
-    public static void main(String[] args) {
-        VenueHireSystem system = new VenueHireSystem();
 
-        Scanner sc = new Scanner(System.in);
+    /**
+     * Runs commands from stdin, one JSON object per line.
+     * --local-shards n partitions venues across n in-JVM shards reached over
+     * loopback, and --shards host:port,... across running ShardServers.
+     * -Dvenues.snapshots=true serves list commands from an immutable
+     * snapshot. -Dvenues.admission.deadline=ms runs commands
+     * through a CommandScheduler. -Dvenues.pipeline=true parses, executes
+     * and prints on separate threads.
+     */
+    public static void main(String[] args) throws IOException {
+        CommandProcessor system;
+        Metrics.startDump(Long.getLong("venues.metrics.dump", 0));
+
+        if (args.length == 2 && args[0].equals("--local-shards")) {
+            system = ShardRouter.local(Integer.parseInt(args[1]));
+        } else if (args.length == 2 && args[0].equals("--shards")) {
+            system = ShardRouter.connect(args[1]);
+        } else {
+            //the shards build their own systems, so only a local run needs one
+            //no read replica: with one caller a list never overlaps a write,
+            //so waiting for the replica only makes it slower
+            VenueHireSystem primary = new VenueHireSystem();
+            if (Boolean.getBoolean("venues.snapshots")) {
+                primary.addSnapshots();
+            }
+            //shards read the admission properties themselves
+            CommandScheduler scheduler = CommandScheduler.fromProperties(primary);
+            system = scheduler == null ? primary : scheduler;
+        }
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in), 1 << 16);
+
+        if (Boolean.getBoolean("venues.pipeline")) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+            new CommandPipeline(system, 64, 256).run(in, out);
+            return;
+        }
+
+        //a BufferedReader rather than a Scanner, which compiles regexes before the first line
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.trim().equals("")) {
+                    JSONObject command = new JSONObject(line);
+                    system.execute(command, out);
+                }
 
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            if (!line.trim().equals("")) {
-                JSONObject command = new JSONObject(line);
-                system.processCommand(command);
+                //answer straight away unless more input is already waiting
+                if (!in.ready()) {
+                    out.flush();
+                }
             }
+        } finally {
+            //a failing command still leaves the output of those before it
+            out.flush();
         }
-        sc.close();
+        in.close();
     }
 
 }
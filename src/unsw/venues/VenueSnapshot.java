@@ -0,0 +1,243 @@
+package unsw.venues;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * An immutable copy of every venue, room and booking as of one point in a
+ * VenueHelper's change stream.
+ *
+ * A new snapshot is derived from the last one for each change. Only the
+ * changed venue's room array and the changed rooms' booking trees are
+ * copied; everything else is shared. Readers holding a snapshot can query it
+ * from any thread without locks and never see a later change.
+ * @author Frank Merriman
+ */
+public final class VenueSnapshot {
+    private static final VenueSnapshot EMPTY = new VenueSnapshot(0, new VenueState[0]);
+
+    private final long sequence;
+    private final VenueState[] venues;
+
+    private VenueSnapshot(long sequence, VenueState[] venues) {
+        this.sequence = sequence;
+        this.venues = venues;
+    }
+
+    /**
+     * Gets the snapshot holding no venues
+     * @return the empty snapshot
+     */
+    public static VenueSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Gets the sequence number of the last change in this snapshot
+     * @return sequence of the last change, 0 if none
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Creates a snapshot with one more room, adding its venue to the end if
+     * it is new. A room whose name the venue already has is ignored.
+     * @param sequence sequence number of the change
+     * @param venue name of the venue
+     * @param room name of the room
+     * @param size size of the room
+     * @return the new snapshot
+     */
+    VenueSnapshot withRoom(long sequence, String venue, String room, RoomSize size) {
+        int venueName = Identifiers.intern(venue);
+        RoomState added = new RoomState(Identifiers.intern(room), size, PersistentBookingTree.empty());
+
+        int v = indexOf(venueName);
+        if (v < 0) {
+            VenueState[] grown = Arrays.copyOf(venues, venues.length + 1);
+            grown[venues.length] = new VenueState(venueName, new RoomState[] {added});
+            return new VenueSnapshot(sequence, grown);
+        }
+
+        RoomState[] rooms = venues[v].rooms;
+        for (RoomState r : rooms) {
+            if (r.name == added.name) {
+                return new VenueSnapshot(sequence, venues);
+            }
+        }
+
+        RoomState[] grown = Arrays.copyOf(rooms, rooms.length + 1);
+        grown[rooms.length] = added;
+        return withVenue(sequence, v, grown);
+    }
+
+    /**
+     * Creates a snapshot with a booking added to some rooms of a venue. Each
+     * occurrence of a recurring booking gets its own entry in the trees.
+     * @param sequence sequence number of the change
+     * @param venue name of the venue
+     * @param rooms names of the booked rooms
+     * @param ID interned handle of the unique bookingID
+     * @param start start date of the booking, or of its first occurrence
+     * @param end end date of the booking, or of its first occurrence
+     * @param period days between occurrences, 0 for a one off booking
+     * @param count number of occurrences
+     * @return the new snapshot
+     */
+    VenueSnapshot withBooking(long sequence, String venue, List<String> rooms,
+    int ID, LocalDate start, LocalDate end, int period, int count) {
+        int v = indexOf(Identifiers.lookup(venue));
+        RoomState[] changed = venues[v].rooms.clone();
+
+        for (String name : rooms) {
+            int r = roomIndex(changed, Identifiers.lookup(name));
+            RoomState old = changed[r];
+            PersistentBookingTree bookings = old.bookings;
+            for (int k = 0; k < count; k++) {
+                bookings = bookings.addBooking(ID, start.plusDays((long) k * period),
+                    end.plusDays((long) k * period));
+            }
+            changed[r] = new RoomState(old.name, old.size, bookings);
+        }
+
+        return withVenue(sequence, v, changed);
+    }
+
+    /**
+     * Creates a snapshot with a booking removed from some rooms of a venue
+     * @param sequence sequence number of the change
+     * @param venue name of the venue
+     * @param rooms names of the rooms holding the booking
+     * @param ID interned handle of the unique bookingID
+     * @param start start date the booking was added with
+     * @param period days between occurrences, 0 for a one off booking
+     * @param count number of occurrences
+     * @return the new snapshot
+     */
+    VenueSnapshot withoutBooking(long sequence, String venue, List<String> rooms,
+    int ID, LocalDate start, int period, int count) {
+        int v = indexOf(Identifiers.lookup(venue));
+        RoomState[] changed = venues[v].rooms.clone();
+
+        for (String name : rooms) {
+            int r = roomIndex(changed, Identifiers.lookup(name));
+            RoomState old = changed[r];
+            PersistentBookingTree bookings = old.bookings;
+            for (int k = 0; k < count; k++) {
+                bookings = bookings.removeBooking(ID, start.plusDays((long) k * period));
+            }
+            changed[r] = new RoomState(old.name, old.size, bookings);
+        }
+
+        return withVenue(sequence, v, changed);
+    }
+
+    private VenueSnapshot withVenue(long sequence, int v, RoomState[] rooms) {
+        VenueState[] changed = venues.clone();
+        changed[v] = new VenueState(venues[v].name, rooms);
+        return new VenueSnapshot(sequence, changed);
+    }
+
+    private int indexOf(int venueName) {
+        for (int v = 0; v < venues.length; v++) {
+            if (venues[v].name == venueName) {
+                return v;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int roomIndex(RoomState[] rooms, int roomName) {
+        for (int r = 0; r < rooms.length; r++) {
+            if (rooms[r].name == roomName) {
+                return r;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Generates a JSONArray of all rooms in a given venue and their bookings
+     * @param venue name of the venue
+     * @return JSONArray in the same form as VenueHelper.listRooms
+     */
+    public JSONArray listRooms(String venue) {
+        JSONArray list = new JSONArray();
+
+        int v = indexOf(Identifiers.lookup(venue));
+        if (v < 0) {
+            return list;
+        }
+
+        for (RoomState r : venues[v].rooms) {
+            JSONObject info = new JSONObject();
+            info.put("room", Identifiers.name(r.name));
+            info.put("reservations", r.bookings.listBookingDetails());
+            list.put(info);
+        }
+
+        return list;
+    }
+
+    /**
+     * Finds the first venue that could serve a request, without booking
+     * anything
+     * @param id unique bookingID, whose own bookings are not in the way
+     * @param start start date for room bookings
+     * @param end end date for room bookings
+     * @param small number of small rooms requested
+     * @param medium number of medium rooms requested
+     * @param large number of large rooms requested
+     * @return name of the venue, or null if no venue has the space
+     */
+    public String findVenue(String id, LocalDate start, LocalDate end,
+    int small, int medium, int large) {
+        int ID = Identifiers.lookup(id);
+        int[] wanted = RoomSize.counts(small, medium, large);
+
+        for (VenueState v : venues) {
+            int[] found = new int[wanted.length];
+            for (RoomState r : v.rooms) {
+                int size = r.size.ordinal();
+                if (found[size] < wanted[size] && r.bookings.avaliableSpace(ID, start, end)) {
+                    found[size] = found[size] + 1;
+                }
+            }
+
+            if (Arrays.equals(found, wanted)) {
+                return Identifiers.name(v.name);
+            }
+        }
+
+        return null;
+    }
+
+    private static final class VenueState {
+        final int name;
+        final RoomState[] rooms;
+
+        VenueState(int name, RoomState[] rooms) {
+            this.name = name;
+            this.rooms = rooms;
+        }
+    }
+
+    private static final class RoomState {
+        final int name;
+        final RoomSize size;
+        final PersistentBookingTree bookings;
+
+        RoomState(int name, RoomSize size, PersistentBookingTree bookings) {
+            this.name = name;
+            this.size = size;
+            this.bookings = bookings;
+        }
+    }
+}
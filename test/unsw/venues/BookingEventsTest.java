@@ -0,0 +1,84 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Checks that booking operations leave the flight recorder alone until a
+ * recording is started, and are recorded once one is. The recorder cannot be
+ * stopped again, so the checks run in order.
+ * @author Frank Merriman
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BookingEventsTest {
+
+    /**
+     * Creates a command from its fields
+     */
+    private static JSONObject command(String... fields) {
+        JSONObject json = new JSONObject();
+        for (int i = 0; i < fields.length; i += 2) {
+            json.put(fields[i], fields[i + 1]);
+        }
+        return json;
+    }
+
+    /**
+     * Adds a room and books it
+     */
+    private static void book(VenueHireSystem system, String id) {
+        system.processCommand(command("command", "room", "venue", "Zoo", "room", "Penguin", "size", "small"));
+        JSONObject request = command("command", "request", "id", id, "start", "2019-03-25", "end", "2019-03-26");
+        request.put("small", 1);
+        request.put("medium", 0);
+        request.put("large", 0);
+        system.processCommand(request);
+    }
+
+    @Test
+    @Order(1)
+    void operationsDoNotStartTheRecorder() {
+        book(new VenueHireSystem(), "Annual Meeting");
+
+        assertFalse(FlightRecorder.isInitialized());
+    }
+
+    @Test
+    @Order(2)
+    void operationsAreRecordedOnceARecordingRuns() throws IOException {
+        Path file = Files.createTempFile("venues", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("unsw.venues.AddBooking");
+            recording.start();
+            book(new VenueHireSystem(), "Annual Meeting");
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.removeIf(e -> !e.getEventType().getName().equals("unsw.venues.AddBooking"));
+            assertEquals(1, events.size());
+            assertEquals("Annual Meeting", events.get(0).getString("bookingID"));
+            assertEquals("Zoo", events.get(0).getString("venue"));
+            assertTrue(events.get(0).getBoolean("accepted"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks where a room with bookings has space.
+ *
+ * The original linear scan never offered the space after a room's last
+ * booking once it held two or more bookings, so a request there was
+ * rejected even though the room was free. Both BookingHelper and the
+ * snapshot tree now offer it.
+ * @author Frank Merriman
+ */
+class BookingHelperTest {
+    private static final LocalDate MARCH_1 = LocalDate.of(2019, 3, 1);
+
+    /**
+     * Creates a room booked on March 1-2 and March 10-11
+     */
+    private static BookingHelper twoBookings() {
+        BookingHelper bookings = new BookingHelper();
+        bookings.addBooking(1, MARCH_1, MARCH_1.plusDays(1));
+        bookings.addBooking(2, MARCH_1.plusDays(9), MARCH_1.plusDays(10));
+        return bookings;
+    }
+
+    /**
+     * Creates a snapshot tree with the same bookings as twoBookings
+     */
+    private static PersistentBookingTree twoBookingsTree() {
+        return PersistentBookingTree.empty()
+            .addBooking(1, MARCH_1, MARCH_1.plusDays(1))
+            .addBooking(2, MARCH_1.plusDays(9), MARCH_1.plusDays(10));
+    }
+
+    @Test
+    void spaceBeforeAndBetweenBookings() {
+        BookingHelper bookings = twoBookings();
+
+        assertTrue(bookings.avaliableSpace(3, MARCH_1.minusDays(5), MARCH_1.minusDays(1)));
+        assertTrue(bookings.avaliableSpace(3, MARCH_1.plusDays(2), MARCH_1.plusDays(8)));
+        assertFalse(bookings.avaliableSpace(3, MARCH_1.plusDays(1), MARCH_1.plusDays(3)));
+        assertFalse(bookings.avaliableSpace(3, MARCH_1.plusDays(8), MARCH_1.plusDays(9)));
+    }
+
+    @Test
+    void spaceAfterTheLastBooking() {
+        //rejected by the original scan
+        assertTrue(twoBookings().avaliableSpace(3, MARCH_1.plusDays(11), MARCH_1.plusDays(12)));
+        assertTrue(twoBookingsTree().avaliableSpace(3, MARCH_1.plusDays(11), MARCH_1.plusDays(12)));
+    }
+
+    @Test
+    void movingTheLastBookingLater() {
+        BookingHelper bookings = twoBookings();
+        bookings.addBooking(3, MARCH_1.plusDays(20), MARCH_1.plusDays(21));
+
+        assertTrue(bookings.avaliableSpace(3, MARCH_1.plusDays(25), MARCH_1.plusDays(26)));
+        assertFalse(bookings.avaliableSpace(3, MARCH_1.plusDays(10), MARCH_1.plusDays(12)));
+    }
+
+    @Test
+    void requestAfterTheLastBookingIsAccepted() {
+        VenueHireSystem system = new VenueHireSystem();
+        JSONObject room = new JSONObject();
+        room.put("command", "room");
+        room.put("venue", "Zoo");
+        room.put("room", "Penguin");
+        room.put("size", "small");
+        system.processCommand(room);
+        system.addRequest("first", MARCH_1, MARCH_1.plusDays(1), 1, 0, 0);
+        system.addRequest("second", MARCH_1.plusDays(9), MARCH_1.plusDays(10), 1, 0, 0);
+
+        JSONObject third = system.addRequest("third", MARCH_1.plusDays(11), MARCH_1.plusDays(12), 1, 0, 0);
+
+        //the original scan answered {"status": "rejected"}
+        assertEquals("success", third.getString("status"));
+        assertEquals("Penguin", third.getJSONArray("rooms").getString(0));
+    }
+
+    /**
+     * Creates a room with a series on March 4-5, 11-12, 18-19 and 25-26,
+     * held by ID 5
+     */
+    private static BookingHelper mondays() {
+        BookingHelper bookings = new BookingHelper();
+        bookings.addSeries(5, MARCH_1.plusDays(3), MARCH_1.plusDays(4), 7, 4);
+        return bookings;
+    }
+
+    @Test
+    void seriesSpaceChecksEveryOccurrence() {
+        BookingHelper bookings = twoBookings();
+
+        //every occurrence on March 3, 10 and 17 except the 10th
+        assertFalse(bookings.seriesSpace(3, MARCH_1.plusDays(2), MARCH_1.plusDays(2), 7, 3));
+        //March 3, 5 and 7 all fall between the bookings
+        assertTrue(bookings.seriesSpace(3, MARCH_1.plusDays(2), MARCH_1.plusDays(2), 2, 3));
+        //the occurrences jump over both bookings
+        assertTrue(bookings.seriesSpace(3, MARCH_1.minusDays(7), MARCH_1.minusDays(6), 9, 3));
+        //a booking with the series' own ID is not in the way
+        assertTrue(bookings.seriesSpace(2, MARCH_1.plusDays(2), MARCH_1.plusDays(2), 7, 3));
+    }
+
+    @Test
+    void seriesSpaceChecksOtherSeries() {
+        BookingHelper bookings = mondays();
+
+        //Tuesdays every fortnight land on the second day of an occurrence
+        assertFalse(bookings.seriesSpace(3, MARCH_1.plusDays(11), MARCH_1.plusDays(11), 14, 2));
+        //Thursdays never do
+        assertTrue(bookings.seriesSpace(3, MARCH_1.plusDays(6), MARCH_1.plusDays(6), 7, 10));
+        //after the last occurrence the days are free again
+        assertTrue(bookings.seriesSpace(3, MARCH_1.plusDays(31), MARCH_1.plusDays(31), 7, 10));
+        assertTrue(bookings.seriesSpace(5, MARCH_1.plusDays(11), MARCH_1.plusDays(11), 14, 2));
+    }
+
+    @Test
+    void slackAroundCountsNearestOccurrences() {
+        BookingHelper bookings = mondays();
+
+        //March 7-8: one free day after March 5, two before March 11
+        assertEquals(3, bookings.slackAround(3, MARCH_1.plusDays(6), MARCH_1.plusDays(7)));
+        //March 13-17 fills the gap exactly
+        assertEquals(0, bookings.slackAround(3, MARCH_1.plusDays(12), MARCH_1.plusDays(16)));
+        assertEquals(-1, bookings.slackAround(3, MARCH_1.plusDays(11), MARCH_1.plusDays(11)));
+        //the series' own occurrences are not in the way
+        assertTrue(bookings.slackAround(5, MARCH_1.plusDays(11), MARCH_1.plusDays(11)) >= 0);
+    }
+
+    @Test
+    void slackAroundOpenSidesOfASeries() {
+        BookingHelper bookings = mondays();
+
+        //March 28, after the last occurrence ends on the 26th
+        assertEquals(1 + Integer.MAX_VALUE / 2, bookings.slackAround(3, MARCH_1.plusDays(27), MARCH_1.plusDays(27)));
+        //February 1-2, before the first starts on March 4
+        assertEquals(29 + Integer.MAX_VALUE / 2, bookings.slackAround(3, MARCH_1.minusDays(28), MARCH_1.minusDays(27)));
+    }
+
+    @Test
+    void slackAroundTakesTheCloserOfBookingAndOccurrence() {
+        BookingHelper bookings = mondays();
+        bookings.addBooking(2, MARCH_1.plusDays(8), MARCH_1.plusDays(8));
+
+        //March 7-8: the booking on March 9 is closer than the occurrence on March 11
+        assertEquals(1, bookings.slackAround(3, MARCH_1.plusDays(6), MARCH_1.plusDays(7)));
+        assertEquals(-1, bookings.slackAround(3, MARCH_1.plusDays(6), MARCH_1.plusDays(8)));
+    }
+}
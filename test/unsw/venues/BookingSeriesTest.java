@@ -0,0 +1,98 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the occurrences a recurring booking works out from its rule, and
+ * which series are allowed at all
+ * @author Frank Merriman
+ */
+class BookingSeriesTest {
+    private static final LocalDate MARCH_4 = LocalDate.of(2019, 3, 4);
+
+    /**
+     * Creates a series on March 4-5, 11-12, 18-19 and 25-26
+     */
+    private static BookingSeries mondays() {
+        return new BookingSeries(1, MARCH_4, MARCH_4.plusDays(1), 7, 4);
+    }
+
+    @Test
+    void occurrencesRepeatEveryPeriod() {
+        BookingSeries series = mondays();
+
+        assertEquals(MARCH_4, series.getStartDate(0));
+        assertEquals(MARCH_4.plusDays(1), series.getEndDate(0));
+        assertEquals(LocalDate.of(2019, 3, 25), series.getStartDate(3));
+        assertEquals(LocalDate.of(2019, 3, 26), series.getEndDate(3));
+    }
+
+    @Test
+    void latestStartingByStopsAtTheLastOccurrence() {
+        BookingSeries series = mondays();
+
+        assertEquals(-1, series.latestStartingBy(MARCH_4.minusDays(1)));
+        assertEquals(0, series.latestStartingBy(MARCH_4));
+        assertEquals(0, series.latestStartingBy(MARCH_4.plusDays(6)));
+        assertEquals(1, series.latestStartingBy(MARCH_4.plusDays(7)));
+        assertEquals(3, series.latestStartingBy(LocalDate.of(2020, 1, 1)));
+    }
+
+    @Test
+    void overlapsOnlyOccurrenceDays() {
+        BookingSeries series = mondays();
+
+        assertTrue(series.overlaps(MARCH_4.plusDays(1), MARCH_4.plusDays(2)));
+        assertTrue(series.overlaps(MARCH_4.minusDays(3), MARCH_4));
+        assertTrue(series.overlaps(MARCH_4.plusDays(2), MARCH_4.plusDays(7)));
+        assertFalse(series.overlaps(MARCH_4.plusDays(2), MARCH_4.plusDays(6)));
+        assertFalse(series.overlaps(MARCH_4.minusDays(3), MARCH_4.minusDays(1)));
+        assertFalse(series.overlaps(LocalDate.of(2019, 3, 27), LocalDate.of(2019, 4, 30)));
+    }
+
+    @Test
+    void validSeriesHaveSeparateOccurrencesAndABoundedCount() {
+        LocalDate end = MARCH_4.plusDays(1);
+
+        assertTrue(BookingSeries.isValid(MARCH_4, end, 7, 1));
+        assertTrue(BookingSeries.isValid(MARCH_4, end, 2, BookingSeries.MAX_COUNT));
+        assertFalse(BookingSeries.isValid(MARCH_4, end, 7, 0));
+        assertFalse(BookingSeries.isValid(MARCH_4, end, 7, BookingSeries.MAX_COUNT + 1));
+        assertFalse(BookingSeries.isValid(MARCH_4, end, 7, Integer.MAX_VALUE));
+        //each occurrence would start on the last day of the one before
+        assertFalse(BookingSeries.isValid(MARCH_4, end, 1, 4));
+        assertFalse(BookingSeries.isValid(end, MARCH_4, 7, 4));
+    }
+
+    @Test
+    void lastOccurrenceMustEndByTheLastDate() {
+        LocalDate nearEnd = LocalDate.MAX.minusDays(14);
+
+        assertTrue(BookingSeries.isValid(nearEnd, nearEnd, 7, 3));
+        assertFalse(BookingSeries.isValid(nearEnd, nearEnd, 7, 4));
+        assertFalse(BookingSeries.isValid(MARCH_4, MARCH_4, Integer.MAX_VALUE, BookingSeries.MAX_COUNT));
+    }
+
+    @Test
+    void oversizedRecurringRequestsAreRejectedStraightAway() {
+        VenueHireSystem system = new VenueHireSystem();
+        system.processCommand(Commands.room("Zoo", "Penguin", "small"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals("rejected", system.addRecurringRequest("a", MARCH_4, MARCH_4,
+                1000, 2000000000, 1, 0, 0).getString("status"));
+            assertEquals("rejected", system.addRecurringRequest("b", MARCH_4, MARCH_4,
+                100000000, 9000, 1, 0, 0).getString("status"));
+        });
+        assertEquals("success", system.addRecurringRequest("c", MARCH_4, MARCH_4,
+            7, BookingSeries.MAX_COUNT, 1, 0, 0).getString("status"));
+    }
+}
@@ -0,0 +1,134 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks the pipeline prints exactly what running the commands one at a
+ * time prints, and that a failing command stops all three stages after
+ * writing the output before it
+ * @author Frank Merriman
+ */
+class CommandPipelineTest {
+    private static final int COMMANDS = 2000;
+
+    /**
+     * Runs commands one at a time, the way main does without a pipeline
+     */
+    private static String sequential(CommandProcessor system, List<String> lines) throws IOException {
+        StringWriter out = new StringWriter();
+        for (String line : lines) {
+            if (!line.trim().isEmpty()) {
+                system.execute(new JSONObject(line), out);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String pipelined(CommandProcessor system, List<String> lines,
+    int capacity, int batchSize) throws IOException {
+        StringWriter out = new StringWriter();
+        BufferedReader in = new BufferedReader(new StringReader(String.join("\n", lines) + "\n"));
+        new CommandPipeline(system, capacity, batchSize).run(in, out);
+        return out.toString();
+    }
+
+    /**
+     * Creates a room followed by COMMANDS lists of its venue
+     */
+    private static List<String> lists() {
+        List<String> lines = new ArrayList<String>();
+        lines.add(Commands.room("Zoo", "Penguin", "small").toString());
+        for (int i = 0; i < COMMANDS; i++) {
+            lines.add(Commands.list("Zoo").toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Waits for every pipeline stage thread to end
+     * @return true if none is still running after a few seconds
+     */
+    private static boolean stagesEnded() throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("venues-pipeline-")) {
+                thread.join(5000);
+                if (thread.isAlive()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sample", "test1", "test2", "test3"})
+    void printsTheSameAsRunningOneAtATime(String name) throws IOException, InterruptedException {
+        List<String> lines = Files.readAllLines(Paths.get(name + "_input.json"));
+        String expected = sequential(new VenueHireSystem(), lines);
+
+        //one-command batches and tiny buffers hand off as often as possible
+        assertEquals(expected, pipelined(new VenueHireSystem(), lines, 1, 1));
+        assertEquals(expected, pipelined(new VenueHireSystem(), lines, 2, 3));
+        assertEquals(expected, pipelined(new VenueHireSystem(), lines, 64, 256));
+        assertTrue(stagesEnded(), "a stage is still running");
+    }
+
+    @Test
+    void failingCommandStopsEveryStage() throws IOException, InterruptedException {
+        List<String> lines = lists();
+        int failAt = 500;
+        VenueHireSystem system = new VenueHireSystem();
+        CommandProcessor failing = new CommandProcessor() {
+            private int executed;
+
+            @Override
+            public String processCommand(JSONObject json) {
+                executed = executed + 1;
+                if (executed == failAt) {
+                    throw new IllegalStateException("command " + executed + " failed");
+                }
+                return system.processCommand(json);
+            }
+        };
+        StringWriter out = new StringWriter();
+        BufferedReader in = new BufferedReader(new StringReader(String.join("\n", lines) + "\n"));
+
+        //small buffers leave the parser blocked on a full queue when the failure comes
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+            () -> new CommandPipeline(failing, 2, 4).run(in, out));
+
+        assertEquals("command 500 failed", thrown.getMessage());
+        assertEquals(sequential(new VenueHireSystem(), lines.subList(0, failAt - 1)), out.toString());
+        assertTrue(stagesEnded(), "a stage is still running");
+    }
+
+    @Test
+    void unparsableLineStopsEveryStage() throws IOException, InterruptedException {
+        List<String> lines = lists();
+        lines.set(300, "not json");
+        StringWriter out = new StringWriter();
+        BufferedReader in = new BufferedReader(new StringReader(String.join("\n", lines) + "\n"));
+
+        assertThrows(JSONException.class, () -> new CommandPipeline(new VenueHireSystem(), 2, 4).run(in, out));
+
+        assertEquals(sequential(new VenueHireSystem(), lines.subList(0, 300)), out.toString());
+        assertTrue(stagesEnded(), "a stage is still running");
+    }
+}
@@ -0,0 +1,174 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which commands the scheduler turns away, that every queue stays
+ * within its capacity, and that a shard's probes go through it
+ * @author Frank Merriman
+ */
+class CommandSchedulerTest {
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CommandScheduler scheduler;
+
+    /**
+     * Starts a scheduler whose system holds up the first command it runs
+     * until release is counted down
+     */
+    private void start(int capacity) {
+        CommandProcessor system = json -> {
+            if (ran.isEmpty()) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ran.add(json.getString("id"));
+            return json.getString("id");
+        };
+        scheduler = new CommandScheduler(system, CommandScheduler.defaultWeights(), capacity, 10000);
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    private static JSONObject command(String command, String id) {
+        JSONObject json = new JSONObject();
+        json.put("command", command);
+        json.put("id", id);
+        return json;
+    }
+
+    /**
+     * Sends a command from a thread of its own
+     */
+    private Thread send(JSONObject command) {
+        Thread thread = new Thread(() -> scheduler.processCommand(command));
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Sends a command and waits until the worker is held up running it
+     */
+    private Thread sendRunning(JSONObject command) throws InterruptedException {
+        Thread thread = send(command);
+        awaitBlocked(thread);
+        while (scheduler.queued(command.getString("command")) > 0) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    /**
+     * Waits until a thread blocks
+     */
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void weightsMustCoverEverySheddableCommand() {
+        assertEquals(CommandScheduler.defaultWeights(), CommandScheduler.parseWeights(null));
+        assertEquals(5, CommandScheduler.parseWeights("request:4,change:2,recurring:1,list:2,report:1").size());
+
+        assertThrows(IllegalArgumentException.class, () -> CommandScheduler.parseWeights("request:4,list:2"));
+        assertThrows(IllegalArgumentException.class,
+            () -> CommandScheduler.parseWeights("request:4,change:2,recurring:1,list:2,report:0"));
+        assertThrows(IllegalArgumentException.class,
+            () -> CommandScheduler.parseWeights("request:4,change:2,recurring:1,list:2,report"));
+    }
+
+    @Test
+    void fullQueueAnswersSheddableCommandsBusy() throws InterruptedException {
+        start(1);
+        Thread running = sendRunning(command("request", "running"));
+        Thread queued = send(command("request", "queued"));
+        awaitBlocked(queued);
+
+        assertEquals(1, scheduler.queued("request"));
+        assertEquals(CommandScheduler.busy().toString(2), scheduler.processCommand(command("request", "shed")));
+
+        release.countDown();
+        running.join();
+        queued.join();
+        assertEquals(List.of("running", "queued"), ran);
+    }
+
+    @Test
+    void fullQueueHoldsOtherCommandsBack() throws InterruptedException {
+        start(1);
+        Thread running = sendRunning(command("cancel", "running"));
+        Thread queued = send(command("cancel", "queued"));
+        awaitBlocked(queued);
+        Thread waiting = send(command("cancel", "waiting"));
+        awaitBlocked(waiting);
+
+        //the third waits for room rather than joining the queue or being shed
+        assertEquals(1, scheduler.queued("cancel"));
+
+        release.countDown();
+        for (Thread thread : new Thread[] {running, queued, waiting}) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        assertEquals(List.of("running", "queued", "waiting"), ran);
+    }
+
+    @Test
+    void queuesThatNeverShedHoldAtLeastOne() throws InterruptedException {
+        start(0);
+        release.countDown();
+
+        assertEquals(CommandScheduler.busy().toString(2), scheduler.processCommand(command("list", "shed")));
+        assertEquals("kept", scheduler.processCommand(command("room", "kept")));
+        assertEquals("probed", scheduler.processCommand(command("probe", "probed")));
+        assertFalse(ran.contains("shed"));
+    }
+
+    @Test
+    void shardProbesGoThroughTheScheduler() throws Exception {
+        System.setProperty("venues.admission.deadline", "1000");
+        System.setProperty("venues.admission.capacity", "0");
+        ShardServer shard;
+        try {
+            shard = new ShardServer(0);
+        } finally {
+            System.clearProperty("venues.admission.deadline");
+            System.clearProperty("venues.admission.capacity");
+        }
+
+        try {
+            shard.handle(Commands.room("Zoo", "Penguin", "small").toString());
+            JSONObject probe = Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0);
+            String request = probe.toString();
+            probe.put("command", "probe");
+
+            //requests are shed by the empty queues, probes never are
+            assertEquals("busy", new JSONObject(shard.handle(request).getString("output")).getString("status"));
+            assertEquals("Zoo", shard.handle(probe.toString()).getString("venue"));
+        } finally {
+            shard.close();
+        }
+    }
+}
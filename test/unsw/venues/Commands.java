@@ -0,0 +1,86 @@
+package unsw.venues;
+
+import org.json.JSONObject;
+
+/**
+ * Builds commands in the same form as the input files
+ * @author Frank Merriman
+ */
+final class Commands {
+
+    private Commands() {
+    }
+
+    /**
+     * Creates a room command
+     */
+    static JSONObject room(String venue, String room, String size) {
+        JSONObject json = new JSONObject();
+        json.put("command", "room");
+        json.put("venue", venue);
+        json.put("room", room);
+        json.put("size", size);
+        return json;
+    }
+
+    /**
+     * Creates a request or change command
+     */
+    static JSONObject booking(String command, String id, String start, String end,
+    int small, int medium, int large) {
+        JSONObject json = new JSONObject();
+        json.put("command", command);
+        json.put("id", id);
+        json.put("start", start);
+        json.put("end", end);
+        json.put("small", small);
+        json.put("medium", medium);
+        json.put("large", large);
+        return json;
+    }
+
+    /**
+     * Creates a request command
+     */
+    static JSONObject request(String id, String start, String end, int small, int medium, int large) {
+        return booking("request", id, start, end, small, medium, large);
+    }
+
+    /**
+     * Creates a change command
+     */
+    static JSONObject change(String id, String start, String end, int small, int medium, int large) {
+        return booking("change", id, start, end, small, medium, large);
+    }
+
+    /**
+     * Creates a cancel command
+     */
+    static JSONObject cancel(String id) {
+        JSONObject json = new JSONObject();
+        json.put("command", "cancel");
+        json.put("id", id);
+        return json;
+    }
+
+    /**
+     * Creates a list command
+     */
+    static JSONObject list(String venue) {
+        JSONObject json = new JSONObject();
+        json.put("command", "list");
+        json.put("venue", venue);
+        return json;
+    }
+
+    /**
+     * Creates a report command
+     */
+    static JSONObject report(String start, String end) {
+        JSONObject json = new JSONObject();
+        json.put("command", "report");
+        json.put("start", start);
+        json.put("end", end);
+        return json;
+    }
+}
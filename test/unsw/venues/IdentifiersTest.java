@@ -0,0 +1,119 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that booking IDs leave the interning table once nothing holds
+ * them, and that old snapshots are not confused when their slots are reused
+ * @author Frank Merriman
+ */
+class IdentifiersTest {
+
+    private static LocalDate day(int dayOfMarch) {
+        return LocalDate.of(2019, 3, dayOfMarch);
+    }
+
+    @Test
+    void heldNameIsForgottenAfterItsLastRelease() {
+        int size = Identifiers.size();
+        int handle = Identifiers.hold("held twice");
+        assertEquals(handle, Identifiers.hold("held twice"));
+
+        Identifiers.release(handle);
+        assertEquals(handle, Identifiers.lookup("held twice"));
+        assertEquals("held twice", Identifiers.name(handle));
+
+        Identifiers.release(handle);
+        assertEquals(Identifiers.NONE, Identifiers.lookup("held twice"));
+        assertEquals(size, Identifiers.size());
+    }
+
+    @Test
+    void reusedSlotGetsAnotherHandle() {
+        int gone = Identifiers.hold("gone");
+        Identifiers.release(gone);
+        int next = Identifiers.hold("next");
+
+        assertNotEquals(gone, next);
+        //a stale release does not touch the name now in the slot
+        Identifiers.release(gone);
+        assertEquals(next, Identifiers.lookup("next"));
+        Identifiers.release(next);
+    }
+
+    @Test
+    void internedNamesAreKept() {
+        int handle = Identifiers.intern("kept venue");
+        assertEquals(handle, Identifiers.hold("kept venue"));
+
+        Identifiers.release(handle);
+        Identifiers.release(handle);
+        assertEquals(handle, Identifiers.lookup("kept venue"));
+    }
+
+    @Test
+    void cancellingReleasesTheBookingID() {
+        VenueHelper primary = new VenueHelper();
+        primary.addRoom("Cancel Zoo", "Penguin", "small");
+        int size = Identifiers.size();
+
+        for (int i = 0; i < 100; i++) {
+            primary.addBooking("passing" + i, day(1), day(2), 1, 0, 0);
+            primary.removeBooking("passing" + i);
+        }
+        assertEquals(size, Identifiers.size());
+
+        //a request for no rooms places nothing, so holds nothing either
+        primary.addBooking("empty", day(1), day(2), 0, 0, 0);
+        assertEquals(Identifiers.NONE, Identifiers.lookup("empty"));
+    }
+
+    @Test
+    void replicaKeepsTheIDUntilItAppliesTheCancel() throws InterruptedException {
+        VenueHelper primary = new VenueHelper();
+        ReadReplica replica = new ReadReplica(4);
+        primary.addChangeListener(replica);
+        primary.addRoom("Replica Zoo", "Penguin", "small");
+        int size = Identifiers.size();
+
+        primary.addBooking("copied", day(1), day(2), 1, 0, 0);
+        replica.awaitSequence(primary.getSequence());
+        int handle = Identifiers.lookup("copied");
+
+        //stop the replica before the cancel reaches it
+        replica.close();
+        primary.removeBooking("copied");
+        assertEquals(handle, Identifiers.lookup("copied"));
+        assertEquals("copied", replica.listRooms("Replica Zoo").getJSONObject(0)
+            .getJSONArray("reservations").getJSONObject(0).getString("id"));
+
+        Identifiers.release(handle);
+        assertEquals(size, Identifiers.size());
+    }
+
+    @Test
+    void oldSnapshotKeepsItsNamesAfterTheSlotIsReused() {
+        VenueHireSystem system = new VenueHireSystem();
+        SnapshotWriter snapshots = system.addSnapshots();
+        system.processCommand(Commands.room("Snapshot Zoo", "Penguin", "small"));
+        system.processCommand(Commands.request("old", "2019-03-01", "2019-03-02", 1, 0, 0));
+        VenueSnapshot before = snapshots.current();
+
+        system.processCommand(Commands.cancel("old"));
+        assertEquals(Identifiers.NONE, Identifiers.lookup("old"));
+        system.processCommand(Commands.request("new", "2019-03-05", "2019-03-06", 1, 0, 0));
+
+        assertEquals("old", before.listRooms("Snapshot Zoo").getJSONObject(0)
+            .getJSONArray("reservations").getJSONObject(0).getString("id"));
+        //new may hold old's slot, but the old snapshot does not take old's booking for its own
+        assertNull(before.findVenue("new", day(1), day(2), 1, 0, 0));
+        assertEquals("new", snapshots.current().listRooms("Snapshot Zoo").getJSONObject(0)
+            .getJSONArray("reservations").getJSONObject(0).getString("id"));
+    }
+}
@@ -0,0 +1,148 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks changes made with incremental changes on: a booking whose rooms
+ * are still free on the new dates stays in them, and anything else is
+ * placed the same way as without incremental changes
+ * @author Frank Merriman
+ */
+class IncrementalChangeTest {
+    private static final LocalDate MARCH_4 = LocalDate.of(2019, 3, 4);
+
+    /**
+     * Creates a system with small rooms Penguin and Hippo and medium room
+     * Lion, all in Zoo
+     */
+    private static VenueHireSystem zoo(boolean incremental) {
+        VenueHireSystem system = new VenueHireSystem();
+        system.venues().setIncrementalChanges(incremental);
+        system.processCommand(Commands.room("Zoo", "Penguin", "small"));
+        system.processCommand(Commands.room("Zoo", "Hippo", "small"));
+        system.processCommand(Commands.room("Zoo", "Lion", "medium"));
+        return system;
+    }
+
+    private static JSONObject run(VenueHireSystem system, JSONObject command) {
+        return new JSONObject(system.processCommand(command));
+    }
+
+    private static List<String> rooms(JSONObject result) {
+        List<String> rooms = new ArrayList<String>();
+        JSONArray names = result.getJSONArray("rooms");
+        for (int i = 0; i < names.length(); i++) {
+            rooms.add(names.getString(i));
+        }
+        return rooms;
+    }
+
+    /**
+     * Gets each of a room's reservations as "id start end"
+     */
+    private static List<String> reservations(VenueHireSystem system, String room) {
+        JSONArray listed = system.venues().listRooms("Zoo");
+        List<String> reservations = new ArrayList<String>();
+        for (int i = 0; i < listed.length(); i++) {
+            if (!listed.getJSONObject(i).getString("room").equals(room)) {
+                continue;
+            }
+            JSONArray held = listed.getJSONObject(i).getJSONArray("reservations");
+            for (int j = 0; j < held.length(); j++) {
+                JSONObject r = held.getJSONObject(j);
+                reservations.add(r.getString("id") + " " + r.getString("start") + " " + r.getString("end"));
+            }
+        }
+        return reservations;
+    }
+
+    /**
+     * Gets how many small rooms Zoo has booked on each day from start to end
+     */
+    private static JSONArray smallOccupied(VenueHireSystem system, LocalDate start, LocalDate end) {
+        return system.venues().report(start, end).getJSONObject(0)
+            .getJSONObject("small").getJSONArray("occupied");
+    }
+
+    @Test
+    void freeRoomsAreKeptWhenTheDatesMove() {
+        VenueHireSystem system = zoo(true);
+        run(system, Commands.request("c", "2019-03-25", "2019-03-26", 1, 0, 0));
+        assertEquals(List.of("Hippo"), rooms(run(system, Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0))));
+        system.processCommand(Commands.cancel("c"));
+
+        //a fresh placement would take Penguin, the first small room
+        JSONObject moved = run(system, Commands.change("a", "2019-03-26", "2019-03-27", 1, 0, 0));
+
+        assertEquals("success", moved.getString("status"));
+        assertEquals(List.of("Hippo"), rooms(moved));
+        assertEquals(List.of("a 2019-03-26 2019-03-27"), reservations(system, "Hippo"));
+        assertEquals(List.of(), reservations(system, "Penguin"));
+        assertEquals("[0,1,1]", smallOccupied(system, LocalDate.of(2019, 3, 25), LocalDate.of(2019, 3, 27)).toString());
+    }
+
+    @Test
+    void otherSizesArePlacedAsWithoutIncrementalChanges() {
+        List<JSONObject> commands = List.of(
+            Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0),
+            Commands.change("a", "2019-03-25", "2019-03-26", 1, 1, 0),
+            Commands.change("a", "2019-03-25", "2019-03-26", 2, 0, 0),
+            Commands.change("a", "2019-03-27", "2019-03-28", 0, 1, 0));
+        VenueHireSystem incremental = zoo(true);
+        VenueHireSystem fresh = zoo(false);
+
+        for (JSONObject command : commands) {
+            assertEquals(fresh.processCommand(command), incremental.processCommand(command), command::toString);
+        }
+        assertEquals(fresh.venues().listRooms("Zoo").toString(), incremental.venues().listRooms("Zoo").toString());
+        assertEquals(List.of("a 2019-03-27 2019-03-28"), reservations(incremental, "Lion"));
+    }
+
+    @Test
+    void neighbouringBookingSendsTheChangeElsewhere() {
+        VenueHireSystem system = zoo(true);
+        run(system, Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0));
+        run(system, Commands.request("b", "2019-03-27", "2019-03-28", 1, 0, 0));
+        assertEquals(List.of("a 2019-03-25 2019-03-26", "b 2019-03-27 2019-03-28"), reservations(system, "Penguin"));
+
+        JSONObject moved = run(system, Commands.change("a", "2019-03-26", "2019-03-27", 1, 0, 0));
+
+        assertEquals(List.of("Hippo"), rooms(moved));
+        assertEquals(List.of("b 2019-03-27 2019-03-28"), reservations(system, "Penguin"));
+        assertEquals(List.of("a 2019-03-26 2019-03-27"), reservations(system, "Hippo"));
+
+        //with Hippo taken too, the change fails and a stays where it was
+        run(system, Commands.request("c", "2019-03-29", "2019-03-29", 1, 0, 0));
+        assertEquals(List.of("Hippo"), rooms(run(system, Commands.request("d", "2019-03-28", "2019-03-28", 1, 0, 0))));
+        assertEquals("rejected", run(system, Commands.change("a", "2019-03-27", "2019-03-28", 1, 0, 0)).getString("status"));
+        assertEquals(List.of("a 2019-03-26 2019-03-27", "d 2019-03-28 2019-03-28"), reservations(system, "Hippo"));
+    }
+
+    @Test
+    void movedSeriesBecomesASingleBooking() {
+        VenueHireSystem system = zoo(true);
+        assertEquals(List.of("Penguin"),
+            rooms(system.addRecurringRequest("a", MARCH_4, MARCH_4.plusDays(1), 7, 4, 1, 0, 0)));
+
+        //overlaps the second occurrence, which is a's own
+        JSONObject moved = run(system, Commands.change("a", "2019-03-12", "2019-03-13", 1, 0, 0));
+
+        assertEquals(List.of("Penguin"), rooms(moved));
+        assertEquals(List.of("a 2019-03-12 2019-03-13"), reservations(system, "Penguin"));
+        assertEquals("[0,0,0,0,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,0]",
+            smallOccupied(system, MARCH_4, LocalDate.of(2019, 3, 26)).toString());
+
+        //the later occurrences' days are free again
+        assertEquals(List.of("Penguin"), rooms(run(system, Commands.request("b", "2019-03-18", "2019-03-19", 1, 0, 0))));
+        system.processCommand(Commands.cancel("a"));
+        assertEquals(List.of("b 2019-03-18 2019-03-19"), reservations(system, "Penguin"));
+    }
+}
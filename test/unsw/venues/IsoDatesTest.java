@@ -0,0 +1,71 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that reading dates gives what LocalDate.parse gives, and that
+ * writing them gives what toString gives
+ * @author Frank Merriman
+ */
+class IsoDatesTest {
+
+    @Test
+    void readsEveryDayLikeLocalDate() {
+        LocalDate day = LocalDate.of(1999, 1, 1);
+        LocalDate last = LocalDate.of(2101, 12, 31);
+        while (!day.isAfter(last)) {
+            assertEquals(LocalDate.parse(day.toString()), IsoDates.parse(day.toString()));
+            day = day.plusDays(1);
+        }
+    }
+
+    @Test
+    void readsOtherYearsLikeLocalDate() {
+        for (String text : new String[] {"0000-01-01", "9999-12-31", "+10000-01-01", "-0001-06-15"}) {
+            assertEquals(LocalDate.parse(text), IsoDates.parse(text));
+        }
+    }
+
+    @Test
+    void rejectsWhatLocalDateRejects() {
+        for (String text : new String[] {"2019-02-29", "2019-13-01", "2019-00-10", "2019-04-31",
+                "2019-3-25", "2019-03-2x", "2019/03/25", "20190325", ""}) {
+            assertThrows(DateTimeParseException.class, () -> LocalDate.parse(text), text);
+            assertThrows(DateTimeParseException.class, () -> IsoDates.parse(text), text);
+        }
+    }
+
+    @Test
+    void writesEveryDayLikeToString() {
+        //either side of the cached years, and a leap year within them
+        String[][] spans = {{"1969-12-01", "1970-01-31"}, {"2019-12-01", "2020-12-31"}, {"2199-12-01", "2200-01-31"}};
+        for (String[] span : spans) {
+            LocalDate day = LocalDate.parse(span[0]);
+            LocalDate last = LocalDate.parse(span[1]);
+            while (!day.isAfter(last)) {
+                assertEquals(day.toString(), IsoDates.format(day));
+                day = day.plusDays(1);
+            }
+        }
+    }
+
+    @Test
+    void cachesOnlyTheYearsWritten() {
+        LocalDate leapDay = LocalDate.of(2196, 2, 29);
+        int years = IsoDates.cachedYears();
+
+        String text = IsoDates.format(leapDay);
+        assertSame(text, IsoDates.format(leapDay));
+        IsoDates.format(LocalDate.of(2196, 12, 31));
+        IsoDates.format(LocalDate.of(2300, 1, 1));
+
+        assertEquals(years + 1, IsoDates.cachedYears());
+    }
+}
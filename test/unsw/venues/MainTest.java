@@ -0,0 +1,59 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONTokener;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs main over piped input and checks that a failing command still
+ * leaves the output of the commands before it
+ * @author Frank Merriman
+ */
+class MainTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void failingCommandKeepsEarlierOutput(boolean pipeline) {
+        String input = String.join("\n",
+            Commands.room("Zoo", "Penguin", "small").toString(),
+            Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0).toString(),
+            Commands.list("Zoo").toString(),
+            "not json") + "\n";
+
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(printed, true));
+        System.setProperty("venues.pipeline", String.valueOf(pipeline));
+        try {
+            assertThrows(JSONException.class, () -> VenueHireSystem.main(new String[0]));
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+            System.clearProperty("venues.pipeline");
+        }
+
+        JSONTokener tokener = new JSONTokener(new String(printed.toByteArray(), StandardCharsets.UTF_8));
+        JSONArray results = new JSONArray();
+        while (tokener.nextClean() != 0) {
+            tokener.back();
+            results.put(tokener.nextValue());
+        }
+
+        assertEquals(2, results.length(), () -> "printed " + results.toString(2));
+        assertEquals("success", results.getJSONObject(0).getString("status"));
+        assertEquals("Penguin", results.getJSONArray(1).getJSONObject(0).getString("room"));
+    }
+}
@@ -0,0 +1,103 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the latency histogram's percentiles and that the histograms and
+ * counters lose nothing when several threads write at once
+ * @author Frank Merriman
+ */
+class MetricsTest {
+    private static final int THREADS = 4;
+    private static final int PER_THREAD = 50000;
+
+    /**
+     * Runs task on THREADS threads started together and waits for them all
+     */
+    private static void together(Runnable task) throws InterruptedException {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.run();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    void percentilesAreWithinABucketOfTheRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(500000, histogram.percentile(50), 500000 * 0.07);
+        assertEquals(990000, histogram.percentile(99), 990000 * 0.07);
+        assertEquals(1000000, histogram.percentile(100));
+
+        JSONObject summary = histogram.summary();
+        assertEquals(1000, summary.getLong("count"));
+        assertEquals(500, summary.getDouble("mean_us"), 1);
+        assertEquals(1000, summary.getDouble("max_us"), 0.001);
+    }
+
+    @Test
+    void concurrentWritersLoseNoValues() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        together(() -> {
+            for (int i = 1; i <= PER_THREAD; i++) {
+                histogram.record(i);
+            }
+        });
+
+        assertEquals((long) THREADS * PER_THREAD, histogram.count());
+        assertEquals(PER_THREAD, histogram.percentile(100));
+        //every value below 32 has its own bucket
+        assertEquals(1, histogram.percentile(0));
+        JSONObject summary = histogram.summary();
+        assertEquals((PER_THREAD + 1) / 2 / 1000.0, summary.getDouble("mean_us"), 0.001);
+    }
+
+    @Test
+    void sharedCountersAddUpAcrossThreads() throws InterruptedException {
+        assumeTrue(Metrics.ENABLED, "run with -Dvenues.metrics=true");
+        long rejected = Metrics.report().getJSONObject("rejections").getLong("duplicate_id");
+        long timed = Metrics.report().getJSONObject("stages").getJSONObject("serialize").getLong("count");
+
+        together(() -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                Metrics.reject(Metrics.Rejection.DUPLICATE_ID);
+                Metrics.record(Metrics.Stage.SERIALIZE, Metrics.start());
+            }
+        });
+
+        //other tests may add to the shared counters, never take away
+        JSONObject report = Metrics.report();
+        assertTrue(report.getBoolean("enabled"));
+        assertTrue(report.getJSONObject("rejections").getLong("duplicate_id") >= rejected + THREADS * PER_THREAD);
+        assertTrue(report.getJSONObject("stages").getJSONObject("serialize").getLong("count")
+            >= timed + THREADS * PER_THREAD);
+    }
+}
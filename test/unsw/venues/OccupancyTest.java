@@ -0,0 +1,121 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the occupancy counters, including bookings far apart in time and
+ * at the ends of the range LocalDate allows
+ * @author Frank Merriman
+ */
+class OccupancyTest {
+    private static final LocalDate MARCH_1 = LocalDate.of(2019, 3, 1);
+
+    @Test
+    void countsOverlappingBookings() {
+        Occupancy occupancy = new Occupancy();
+        occupancy.add(RoomSize.SMALL, MARCH_1, MARCH_1.plusDays(3), 1);
+        occupancy.add(RoomSize.SMALL, MARCH_1.plusDays(2), MARCH_1.plusDays(5), 1);
+        occupancy.add(RoomSize.LARGE, MARCH_1.plusDays(1), MARCH_1.plusDays(1), 1);
+
+        assertArrayEquals(new int[] {0, 1, 1, 2, 2, 1, 1, 0},
+            occupancy.occupied(RoomSize.SMALL, MARCH_1.minusDays(1), MARCH_1.plusDays(6)));
+        assertArrayEquals(new int[] {0, 1, 0},
+            occupancy.occupied(RoomSize.LARGE, MARCH_1, MARCH_1.plusDays(2)));
+        assertArrayEquals(new int[] {0}, occupancy.occupied(RoomSize.MEDIUM, MARCH_1, MARCH_1));
+    }
+
+    @Test
+    void freeingEverythingLeavesNoRuns() {
+        Occupancy occupancy = new Occupancy();
+        occupancy.add(RoomSize.SMALL, MARCH_1, MARCH_1.plusDays(3), 1);
+        occupancy.add(RoomSize.SMALL, MARCH_1.plusDays(4), MARCH_1.plusDays(9), 1);
+        assertEquals(2, occupancy.runs(RoomSize.SMALL));
+
+        occupancy.add(RoomSize.SMALL, MARCH_1, MARCH_1.plusDays(3), -1);
+        occupancy.add(RoomSize.SMALL, MARCH_1.plusDays(4), MARCH_1.plusDays(9), -1);
+        assertEquals(0, occupancy.runs(RoomSize.SMALL));
+    }
+
+    @Test
+    void farApartBookingsStaySmall() {
+        Occupancy occupancy = new Occupancy();
+        LocalDate early = LocalDate.of(1, 1, 1);
+        LocalDate late = LocalDate.of(9999, 12, 31);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            occupancy.add(RoomSize.MEDIUM, early, early, 1);
+            occupancy.add(RoomSize.MEDIUM, late, late, 1);
+            occupancy.add(RoomSize.LARGE, LocalDate.MIN, LocalDate.MAX, 1);
+        });
+
+        assertEquals(4, occupancy.runs(RoomSize.MEDIUM));
+        assertArrayEquals(new int[] {1, 0}, occupancy.occupied(RoomSize.MEDIUM, early, early.plusDays(1)));
+        assertArrayEquals(new int[] {0, 1}, occupancy.occupied(RoomSize.MEDIUM, late.minusDays(1), late));
+        assertArrayEquals(new int[] {1, 1}, occupancy.occupied(RoomSize.LARGE, LocalDate.MAX.minusDays(1), LocalDate.MAX));
+        assertArrayEquals(new int[] {1}, occupancy.occupied(RoomSize.LARGE, LocalDate.MIN, LocalDate.MIN));
+    }
+
+    @Test
+    void matchesCountingEveryDay() {
+        Random random = new Random(3);
+        Occupancy occupancy = new Occupancy();
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        List<LocalDate[]> booked = new ArrayList<LocalDate[]>();
+
+        for (int i = 0; i < 2000; i++) {
+            int delta = 1;
+            LocalDate start;
+            LocalDate end;
+            if (!booked.isEmpty() && random.nextInt(3) == 0) {
+                LocalDate[] freed = booked.remove(random.nextInt(booked.size()));
+                start = freed[0];
+                end = freed[1];
+                delta = -1;
+            } else {
+                start = MARCH_1.plusDays(random.nextInt(200));
+                end = start.plusDays(random.nextInt(10));
+                booked.add(new LocalDate[] {start, end});
+            }
+
+            occupancy.add(RoomSize.SMALL, start, end, delta);
+            for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+                expected.merge(d.toEpochDay(), delta, Integer::sum);
+            }
+        }
+
+        int[] counts = occupancy.occupied(RoomSize.SMALL, MARCH_1.minusDays(5), MARCH_1.plusDays(215));
+        for (int i = 0; i < counts.length; i++) {
+            long day = MARCH_1.minusDays(5).toEpochDay() + i;
+            assertEquals((int) expected.getOrDefault(day, 0), counts[i], "day " + LocalDate.ofEpochDay(day));
+        }
+    }
+
+    @Test
+    void reportsAtExtremeDates() {
+        VenueHireSystem system = new VenueHireSystem();
+        system.processCommand(Commands.room("Zoo", "Penguin", "small"));
+        system.processCommand(Commands.request("far", "+999999-01-01", "+999999-01-02", 1, 0, 0));
+        system.processCommand(Commands.request("near", "2019-03-01", "2019-03-01", 1, 0, 0));
+
+        JSONArray report = (JSONArray) system.execute(Commands.report("+999999-01-01", "+999999-01-03"));
+        JSONObject small = report.getJSONObject(0).getJSONObject("small");
+        assertEquals("[1,1,0]", small.getJSONArray("occupied").toString());
+
+        JSONArray tooLong = (JSONArray) system.execute(Commands.report("2019-01-01", "+999999-01-01"));
+        assertEquals(0, tooLong.length());
+    }
+}
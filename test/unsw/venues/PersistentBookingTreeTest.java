@@ -0,0 +1,215 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the persistent booking tree stays a sorted, balanced AVL tree
+ * through adds and removes, shares all but the copied path with the tree it
+ * was made from, and never changes an old tree
+ * @author Frank Merriman
+ */
+class PersistentBookingTreeTest {
+    private static final LocalDate FIRST = LocalDate.of(2019, 1, 1);
+    private static final int N = 1000;
+
+    //booking i takes days 2i and 2i + 1, so no two overlap
+    private final int[] ids = new int[N];
+
+    PersistentBookingTreeTest() {
+        for (int i = 0; i < N; i++) {
+            ids[i] = Identifiers.hold("tree-" + System.identityHashCode(this) + "-" + i);
+        }
+    }
+
+    @AfterEach
+    void releaseIDs() {
+        for (int id : ids) {
+            Identifiers.release(id);
+        }
+    }
+
+    private static LocalDate start(int i) {
+        return FIRST.plusDays(2 * i);
+    }
+
+    private PersistentBookingTree add(PersistentBookingTree tree, int i) {
+        return tree.addBooking(ids[i], start(i), start(i).plusDays(1));
+    }
+
+    private PersistentBookingTree remove(PersistentBookingTree tree, int i) {
+        return tree.removeBooking(ids[i], start(i));
+    }
+
+    /**
+     * Gets the start dates the tree lists, in the order it lists them
+     */
+    private static List<String> starts(PersistentBookingTree tree) {
+        JSONArray details = tree.listBookingDetails();
+        List<String> starts = new ArrayList<String>();
+        for (int i = 0; i < details.length(); i++) {
+            starts.add(details.getJSONObject(i).getString("start"));
+        }
+        return starts;
+    }
+
+    private static List<String> expected(List<Integer> bookings) {
+        List<Integer> sorted = new ArrayList<Integer>(bookings);
+        Collections.sort(sorted);
+        List<String> starts = new ArrayList<String>();
+        for (int i : sorted) {
+            starts.add(start(i).toString());
+        }
+        return starts;
+    }
+
+    /**
+     * Gets the largest height an AVL tree of n nodes may have
+     */
+    private static double avlBound(int n) {
+        return 1.44 * Math.log(n + 2) / Math.log(2);
+    }
+
+    private static List<Integer> inOrder() {
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < N; i++) {
+            order.add(i);
+        }
+        return order;
+    }
+
+    private static List<Integer> shuffled(long seed) {
+        List<Integer> order = inOrder();
+        Collections.shuffle(order, new Random(seed));
+        return order;
+    }
+
+    @Test
+    void smallTreesRotateIntoBalance() {
+        //ascending, descending and both zigzags need each of the four rotations
+        int[][] orders = {{0, 1, 2}, {2, 1, 0}, {2, 0, 1}, {0, 2, 1}};
+        for (int[] order : orders) {
+            PersistentBookingTree tree = PersistentBookingTree.empty();
+            for (int i : order) {
+                tree = add(tree, i);
+            }
+            assertEquals(2, tree.height());
+            assertTrue(tree.isBalanced());
+            assertEquals(expected(List.of(0, 1, 2)), starts(tree));
+        }
+    }
+
+    @Test
+    void insertsStaySortedAndBalanced() {
+        for (List<Integer> order : List.of(shuffled(1), shuffled(2), inOrder())) {
+            PersistentBookingTree tree = PersistentBookingTree.empty();
+            List<Integer> added = new ArrayList<Integer>();
+            for (int i : order) {
+                tree = add(tree, i);
+                added.add(i);
+                assertTrue(tree.isBalanced());
+                assertTrue(tree.height() <= avlBound(added.size()), "height " + tree.height());
+            }
+            assertEquals(N, tree.size());
+            assertEquals(expected(added), starts(tree));
+        }
+    }
+
+    @Test
+    void deletesStaySortedAndBalanced() {
+        PersistentBookingTree tree = PersistentBookingTree.empty();
+        for (int i : shuffled(3)) {
+            tree = add(tree, i);
+        }
+
+        List<Integer> left = new ArrayList<Integer>(inOrder());
+        for (int i : shuffled(4)) {
+            tree = remove(tree, i);
+            left.remove(Integer.valueOf(i));
+            assertTrue(tree.isBalanced());
+            assertTrue(tree.height() <= avlBound(left.size()), "height " + tree.height());
+            if (left.size() % 97 == 0) {
+                assertEquals(expected(left), starts(tree));
+            }
+        }
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void removingAMissingBookingReturnsTheSameTree() {
+        PersistentBookingTree tree = add(add(PersistentBookingTree.empty(), 0), 1);
+
+        assertSame(tree, remove(tree, 2));
+        //right ID, wrong start
+        assertSame(tree, tree.removeBooking(ids[0], start(1)));
+    }
+
+    @Test
+    void writesCopyOnlyThePathToTheChange() {
+        PersistentBookingTree tree = PersistentBookingTree.empty();
+        for (int i = 0; i < N; i += 2) {
+            tree = add(tree, i);
+        }
+
+        PersistentBookingTree added = add(tree, 501);
+        PersistentBookingTree removed = remove(tree, 500);
+
+        //each write makes at most a couple of new nodes per level it visits
+        assertTrue(added.sharedNodes(tree) >= tree.size() - 2 * added.height(),
+            added.sharedNodes(tree) + " shared");
+        assertTrue(removed.sharedNodes(tree) >= removed.size() - 2 * tree.height(),
+            removed.sharedNodes(tree) + " shared");
+    }
+
+    @Test
+    void oldTreesNeverChange() {
+        List<PersistentBookingTree> versions = new ArrayList<PersistentBookingTree>();
+        List<List<String>> listed = new ArrayList<List<String>>();
+        List<Integer> held = new ArrayList<Integer>();
+        PersistentBookingTree tree = PersistentBookingTree.empty();
+        Random random = new Random(5);
+
+        for (int step = 0; step < 2000; step++) {
+            int i = random.nextInt(N);
+            if (held.contains(i)) {
+                tree = remove(tree, i);
+                held.remove(Integer.valueOf(i));
+            } else {
+                tree = add(tree, i);
+                held.add(i);
+            }
+            if (step % 100 == 0) {
+                versions.add(tree);
+                listed.add(starts(tree));
+            }
+        }
+
+        for (int v = 0; v < versions.size(); v++) {
+            assertEquals(listed.get(v), starts(versions.get(v)));
+            assertTrue(versions.get(v).isBalanced());
+        }
+    }
+
+    @Test
+    void availabilityIgnoresTheBookingBeingMoved() {
+        PersistentBookingTree tree = add(add(PersistentBookingTree.empty(), 0), 2);
+
+        assertTrue(tree.avaliableSpace(Identifiers.NONE, start(1), start(1).plusDays(1)));
+        assertFalse(tree.avaliableSpace(Identifiers.NONE, start(0).plusDays(1), start(1)));
+        assertFalse(tree.avaliableSpace(Identifiers.NONE, start(1), start(2)));
+        assertTrue(tree.avaliableSpace(ids[0], start(0).plusDays(1), start(1)));
+        assertFalse(tree.avaliableSpace(ids[0], start(1), start(2)));
+    }
+}
@@ -0,0 +1,139 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+
+import org.json.JSONArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a replica ends up with the primary's state, holds the primary
+ * back once it is maxLag changes behind, and that stale reads miss no more
+ * than that
+ * @author Frank Merriman
+ */
+class ReadReplicaTest {
+    private final VenueHelper primary = new VenueHelper();
+    private ReadReplica replica;
+    private final CountDownLatch resume = new CountDownLatch(1);
+
+    private static LocalDate day(int dayOfMarch) {
+        return LocalDate.of(2019, 3, dayOfMarch);
+    }
+
+    private void start(int maxLag) {
+        replica = new ReadReplica(maxLag);
+        primary.addChangeListener(replica);
+    }
+
+    @AfterEach
+    void stop() {
+        resume.countDown();
+        replica.close();
+    }
+
+    /**
+     * Holds up the replica's applier until resume is counted down, by
+     * keeping the lock it applies events under
+     */
+    private Thread stall() throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            synchronized (replica) {
+                held.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        held.await();
+        return thread;
+    }
+
+    /**
+     * Waits until a thread blocks
+     */
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        while (thread.getState() == Thread.State.RUNNABLE || thread.getState() == Thread.State.NEW) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void caughtUpReplicaListsWhatThePrimaryLists() throws InterruptedException {
+        start(4);
+        primary.addRoom("Zoo", "Penguin", "small");
+        primary.addRoom("Zoo", "Hippo", "large");
+        primary.addBooking("a", day(1), day(2), 1, 0, 0);
+        primary.addBooking("b", day(1), day(3), 1, 0, 1);
+        primary.changeBooking("a", day(5), day(6), 0, 0, 1);
+        primary.addRecurringBooking("weekly", day(10), day(10), 7, 3, 1, 0, 0);
+        primary.removeBooking("b");
+
+        JSONArray listed = replica.listRooms("Zoo", primary.getSequence());
+
+        assertEquals(primary.getSequence(), replica.getAppliedSequence());
+        assertEquals(primary.listRooms("Zoo").toString(), listed.toString());
+        assertEquals(primary.listRooms("Nowhere").toString(), replica.listRooms("Nowhere").toString());
+    }
+
+    @Test
+    void primaryWaitsOnceReplicaIsMaxLagBehind() throws InterruptedException {
+        start(2);
+        primary.addRoom("Zoo", "Penguin", "small");
+        replica.awaitSequence(primary.getSequence());
+        Thread stalled = stall();
+
+        //one change being applied and two queued; the fourth has to wait
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 4; i++) {
+                primary.addBooking("b" + i, day(1 + 2 * i), day(1 + 2 * i), 1, 0, 0);
+            }
+        });
+        writer.start();
+        awaitBlocked(writer);
+        writer.join(100);
+        assertTrue(writer.isAlive());
+
+        resume.countDown();
+        writer.join();
+        stalled.join();
+
+        assertEquals(primary.listRooms("Zoo").toString(),
+            replica.listRooms("Zoo", primary.getSequence()).toString());
+    }
+
+    @Test
+    void staleReadsMissAtMostMaxLagChanges() throws InterruptedException {
+        start(1);
+        primary.addRoom("Zoo", "Penguin", "small");
+        replica.awaitSequence(primary.getSequence());
+        stall();
+        primary.addBooking("a", day(1), day(2), 1, 0, 0);
+        primary.addBooking("b", day(3), day(4), 1, 0, 0);
+
+        JSONArray[] listed = new JSONArray[1];
+        Thread reader = new Thread(() -> {
+            try {
+                listed[0] = replica.listRoomsWithinLag("Zoo", primary.getSequence());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        resume.countDown();
+        reader.join();
+
+        //booking a is more than one change old, so it must be there
+        JSONArray reservations = listed[0].getJSONObject(0).getJSONArray("reservations");
+        assertTrue(reservations.length() >= 1);
+        assertEquals("a", reservations.getJSONObject(0).getString("id"));
+    }
+}
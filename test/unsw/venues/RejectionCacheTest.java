@@ -0,0 +1,89 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which cached rejections freeing some dates drops
+ * @author Frank Merriman
+ */
+class RejectionCacheTest {
+
+    private static LocalDate day(int dayOfMarch) {
+        return LocalDate.of(2019, 3, dayOfMarch);
+    }
+
+    @Test
+    void freeingDropsOnlyOverlappingShapes() {
+        RejectionCache cache = new RejectionCache(16);
+        cache.reject(day(1), day(2), 1, 0, 0);
+        cache.reject(day(5), day(6), 1, 0, 0);
+        cache.reject(day(9), day(10), 1, 0, 0);
+
+        cache.freed(day(6), day(8));
+
+        assertTrue(cache.isRejected(day(1), day(2), 1, 0, 0));
+        assertFalse(cache.isRejected(day(5), day(6), 1, 0, 0));
+        assertTrue(cache.isRejected(day(9), day(10), 1, 0, 0));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void freeingReachesLongShapesStartingEarlier() {
+        RejectionCache cache = new RejectionCache(16);
+        cache.reject(day(1), day(20), 0, 1, 0);
+        cache.reject(day(14), day(14), 0, 1, 0);
+
+        cache.freed(day(18), day(18));
+
+        assertFalse(cache.isRejected(day(1), day(20), 0, 1, 0));
+        assertTrue(cache.isRejected(day(14), day(14), 0, 1, 0));
+    }
+
+    @Test
+    void shapesWithTheSameDatesAreKeptApart() {
+        RejectionCache cache = new RejectionCache(16);
+        cache.reject(day(3), day(4), 1, 0, 0);
+        cache.reject(day(3), day(4), 0, 0, 2);
+
+        assertTrue(cache.isRejected(day(3), day(4), 0, 0, 2));
+        assertFalse(cache.isRejected(day(3), day(4), 0, 1, 0));
+
+        cache.freed(day(4), day(4));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictedShapesLeaveTheIndex() {
+        RejectionCache cache = new RejectionCache(2);
+        cache.reject(day(1), day(1), 1, 0, 0);
+        cache.reject(day(2), day(2), 1, 0, 0);
+        cache.reject(day(3), day(3), 1, 0, 0);
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.isRejected(day(1), day(1), 1, 0, 0));
+
+        //freeing the evicted shape's day finds nothing to drop
+        cache.freed(day(1), day(1));
+        assertEquals(2, cache.size());
+
+        cache.freed(day(2), day(3));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void newRoomMakesEveryShapeAMiss() {
+        RejectionCache cache = new RejectionCache(16);
+        cache.reject(day(1), day(2), 1, 0, 0);
+
+        cache.bump();
+
+        assertFalse(cache.isRejected(day(1), day(2), 1, 0, 0));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,124 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pins ResultWriter to org.json: every kind of result must come out exactly
+ * as toString(2) gives it, so a library or JDK update that changes org.json's
+ * key order fails here instead of changing the output of direct mode
+ * @author Frank Merriman
+ */
+class ResultWriterTest {
+    private VenueHelper venues;
+
+    @BeforeEach
+    void fill() {
+        venues = new VenueHelper();
+        venues.addRoom("Zoo", "Penguin", "small");
+        venues.addRoom("Zoo", "Hippo", "large");
+        venues.addRoom("Zoo", "Quote \"/\\  ", "small");
+        venues.addRoom("Empty", "Lonely", "medium");
+    }
+
+    /**
+     * Checks both of ResultWriter's outputs against toString(2)
+     * @param result JSONObject or JSONArray result
+     */
+    private static void assertWritten(Object result) throws IOException {
+        String expected = result instanceof JSONArray
+            ? ((JSONArray) result).toString(2) : ((JSONObject) result).toString(2);
+        ResultWriter writer = new ResultWriter();
+
+        assertEquals(expected, writer.write(result));
+
+        StringWriter out = new StringWriter();
+        writer.write(result, out);
+        assertEquals(expected, out.toString());
+    }
+
+    /**
+     * Checks the direct list path against the list built as a tree
+     */
+    private void assertListed(String venue) throws IOException {
+        String expected = venues.listRooms(venue).toString(2);
+
+        assertEquals(expected, venues.writeRooms(venue, new ResultWriter()));
+
+        StringWriter out = new StringWriter();
+        venues.writeRooms(venue, new ResultWriter(), out);
+        assertEquals(expected, out.toString());
+
+        assertWritten(venues.listRooms(venue));
+    }
+
+    private static LocalDate day(int dayOfMarch) {
+        return LocalDate.of(2019, 3, dayOfMarch);
+    }
+
+    @Test
+    void requestResults() throws IOException {
+        assertWritten(venues.addBooking("one", day(1), day(2), 1, 0, 0));
+        assertWritten(venues.addBooking("two", day(1), day(2), 2, 0, 1));
+        assertWritten(venues.addBooking("three", day(1), day(2), 5, 0, 0));
+    }
+
+    @Test
+    void changeResults() throws IOException {
+        venues.addBooking("one", day(1), day(2), 1, 0, 0);
+
+        assertWritten(venues.changeBooking("one", day(5), day(6), 1, 0, 1));
+        assertWritten(venues.changeBooking("one", day(5), day(6), 9, 0, 0));
+    }
+
+    @Test
+    void recurringResults() throws IOException {
+        assertWritten(venues.addRecurringBooking("weekly", day(1), day(1), 7, 4, 1, 0, 0));
+        assertWritten(venues.addRecurringBooking("clash", day(1), day(1), 7, 4, 2, 0, 0));
+    }
+
+    @Test
+    void listResults() throws IOException {
+        assertListed("Zoo");
+        assertListed("Empty");
+        assertListed("Nowhere");
+
+        venues.addBooking("one", day(1), day(2), 1, 0, 0);
+        assertListed("Zoo");
+
+        venues.addBooking("two", day(3), day(4), 2, 0, 1);
+        venues.addRecurringBooking("weekly", day(10), day(10), 7, 3, 1, 0, 0);
+        assertListed("Zoo");
+    }
+
+    @Test
+    void reportResults() throws IOException {
+        venues.addBooking("one", day(1), day(2), 1, 0, 1);
+
+        assertWritten(venues.report(day(1), day(3)));
+        assertWritten(venues.report(day(2), day(2)));
+        assertWritten(venues.report(day(3), day(1)));
+    }
+
+    @Test
+    void longOutputIsWrittenWhole() throws IOException {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            venues.addBooking("booking" + i, day(1).plusDays(2 * i), day(1).plusDays(2 * i), 1, 0, 0);
+            ids.add("booking" + i);
+        }
+
+        assertListed("Zoo");
+        assertWritten(new JSONArray(ids));
+    }
+}
@@ -0,0 +1,57 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDate;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a room with a size other than small, medium or large is
+ * added but never booked, as it always was
+ * @author Frank Merriman
+ */
+class RoomSizeTest {
+
+    @Test
+    void otherNamesAreUnbookable() {
+        assertSame(RoomSize.SMALL, RoomSize.fromString("small"));
+        assertSame(RoomSize.UNBOOKABLE, RoomSize.fromString("huge"));
+        assertFalse(RoomSize.fromString("Small").isBookable());
+    }
+
+    @Test
+    void unknownSizeRoomIsListedButNeverBooked() {
+        VenueHireSystem system = new VenueHireSystem();
+        system.processCommand(Commands.room("Zoo", "Hall", "huge"));
+        system.processCommand(Commands.room("Zoo", "Penguin", "small"));
+        //the name is taken, so this room is not added
+        system.processCommand(Commands.room("Zoo", "Hall", "small"));
+
+        JSONObject first = system.addRequest("a", LocalDate.parse("2019-03-25"), LocalDate.parse("2019-03-26"), 1, 0, 0);
+        JSONObject second = system.addRequest("b", LocalDate.parse("2019-03-25"), LocalDate.parse("2019-03-26"), 1, 0, 0);
+
+        assertEquals("Penguin", first.getJSONArray("rooms").getString(0));
+        assertEquals("rejected", second.getString("status"));
+
+        JSONArray rooms = (JSONArray) system.execute(Commands.list("Zoo"));
+        assertEquals("Hall", rooms.getJSONObject(0).getString("room"));
+        assertEquals(0, rooms.getJSONObject(0).getJSONArray("reservations").length());
+    }
+
+    @Test
+    void reportLeavesOutUnbookableRooms() {
+        VenueHireSystem system = new VenueHireSystem();
+        system.processCommand(Commands.room("Zoo", "Hall", "huge"));
+        system.processCommand(Commands.room("Zoo", "Penguin", "small"));
+
+        JSONObject venue = system.report(LocalDate.parse("2019-03-25"), LocalDate.parse("2019-03-26")).getJSONObject(0);
+
+        assertEquals(1, venue.getJSONObject("small").getInt("rooms"));
+        assertFalse(venue.has("unbookable"));
+    }
+}
@@ -0,0 +1,64 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs each sample input through a fresh system and compares the results
+ * with the matching sample output
+ * @author Frank Merriman
+ */
+class SampleInputTest {
+
+    /**
+     * Reads a file of JSON values one after another
+     * @param file path of the file
+     * @return the values in the order they appear
+     */
+    static JSONArray readValues(String file) throws IOException {
+        JSONTokener tokener = new JSONTokener(new String(Files.readAllBytes(Paths.get(file))));
+        JSONArray values = new JSONArray();
+        while (tokener.nextClean() != 0) {
+            tokener.back();
+            values.put(tokener.nextValue());
+        }
+        return values;
+    }
+
+    /**
+     * Runs every command in an input file, one per line
+     * @param system system to run them on
+     * @param file path of the input file
+     * @return the results of the commands that gave one
+     */
+    static JSONArray run(CommandProcessor system, String file) throws IOException {
+        JSONArray results = new JSONArray();
+        for (String line : Files.readAllLines(Paths.get(file))) {
+            if (!line.trim().isEmpty()) {
+                String output = system.processCommand(new JSONObject(line));
+                if (output != null) {
+                    results.put(new JSONTokener(output).nextValue());
+                }
+            }
+        }
+        return results;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"sample", "test1", "test2", "test3"})
+    void matchesSampleOutput(String name) throws IOException {
+        JSONArray expected = readValues(name + "_output.json");
+        JSONArray actual = run(new VenueHireSystem(), name + "_input.json");
+
+        assertTrue(expected.similar(actual), () -> name + " gave " + actual.toString(2));
+    }
+}
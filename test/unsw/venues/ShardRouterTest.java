@@ -0,0 +1,172 @@
+package unsw.venues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a change moving a booking to another shard happens on both
+ * shards or on neither
+ * @author Frank Merriman
+ */
+class ShardRouterTest {
+    private final List<ShardServer> servers = new ArrayList<ShardServer>();
+    private ShardRouter router;
+    private ServerSocket faulty;
+    private volatile boolean failCancels;
+
+    /**
+     * Starts two shards, the second answering every request busy if shed
+     * is true; Zoo goes to the first and Park to the second
+     */
+    private void start(boolean shed) throws IOException {
+        List<ShardConnection> connections = new ArrayList<ShardConnection>();
+        for (int i = 0; i < 2; i++) {
+            if (shed && i == 1) {
+                //queues that hold nothing turn away every sheddable command
+                System.setProperty("venues.admission.deadline", "1000");
+                System.setProperty("venues.admission.capacity", "0");
+            }
+            try {
+                ShardServer server = new ShardServer(0).start();
+                servers.add(server);
+                connections.add(new ShardConnection("localhost", server.getPort()));
+            } finally {
+                System.clearProperty("venues.admission.deadline");
+                System.clearProperty("venues.admission.capacity");
+            }
+        }
+
+        router = new ShardRouter(connections);
+        router.processCommand(Commands.room("Zoo", "Penguin", "small"));
+        router.processCommand(Commands.room("Park", "Hall", "large"));
+    }
+
+    /**
+     * Starts two shards, the first one answering cancels with an error
+     * while failCancels is set; Zoo goes to the first and Park to the second
+     */
+    private void startFaulty() throws IOException {
+        ShardServer first = new ShardServer(0);
+        servers.add(first);
+        faulty = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> serveFaulty(first), "faulty-shard");
+        thread.setDaemon(true);
+        thread.start();
+
+        ShardServer second = new ShardServer(0).start();
+        servers.add(second);
+
+        List<ShardConnection> connections = new ArrayList<ShardConnection>();
+        connections.add(new ShardConnection("localhost", faulty.getLocalPort()));
+        connections.add(new ShardConnection("localhost", second.getPort()));
+        router = new ShardRouter(connections);
+        router.processCommand(Commands.room("Zoo", "Penguin", "small"));
+        router.processCommand(Commands.room("Park", "Hall", "large"));
+    }
+
+    /**
+     * Answers the router's one connection from a shard's handle, except
+     * for the cancels it fails
+     */
+    private void serveFaulty(ShardServer shard) {
+        try (Socket socket = faulty.accept();
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (failCancels && new JSONObject(line).getString("command").equals("cancel")) {
+                    out.println(new JSONObject().put("error", "cancel failed"));
+                } else {
+                    out.println(shard.handle(line));
+                }
+            }
+        } catch (IOException e) {
+            //router went away
+        }
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (router != null) {
+            router.close();
+        }
+        if (faulty != null) {
+            faulty.close();
+        }
+        for (ShardServer server : servers) {
+            server.close();
+        }
+    }
+
+    private String status(JSONObject command) {
+        return new JSONObject(router.processCommand(command)).getString("status");
+    }
+
+    private JSONArray reservations(String venue) {
+        JSONArray rooms = new JSONArray(router.processCommand(Commands.list(venue)));
+        return rooms.getJSONObject(0).getJSONArray("reservations");
+    }
+
+    @Test
+    void busyShardLeavesBookingWhereItWas() throws IOException {
+        start(true);
+        assertEquals("success", status(Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0)));
+
+        //only Park has a large room, and its shard answers busy
+        assertEquals("busy", status(Commands.change("a", "2019-03-25", "2019-03-26", 0, 0, 1)));
+
+        assertEquals("a", reservations("Zoo").getJSONObject(0).getString("id"));
+        assertEquals("rejected", status(Commands.request("a", "2019-04-01", "2019-04-02", 1, 0, 0)));
+
+        //the router still knows the first shard holds it
+        router.processCommand(Commands.cancel("a"));
+        assertEquals(0, reservations("Zoo").length());
+    }
+
+    @Test
+    void moveCancelsOldBookingOnlyAfterNewOneSucceeds() throws IOException {
+        start(false);
+        assertEquals("success", status(Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0)));
+
+        assertEquals("success", status(Commands.change("a", "2019-03-25", "2019-03-26", 0, 0, 1)));
+
+        assertEquals(0, reservations("Zoo").length());
+        assertEquals("a", reservations("Park").getJSONObject(0).getString("id"));
+
+        router.processCommand(Commands.cancel("a"));
+        assertEquals(0, reservations("Park").length());
+    }
+
+    @Test
+    void failedCancelOnOldShardUndoesMove() throws IOException {
+        startFaulty();
+        assertEquals("success", status(Commands.request("a", "2019-03-25", "2019-03-26", 1, 0, 0)));
+
+        failCancels = true;
+        assertThrows(IllegalStateException.class,
+            () -> router.processCommand(Commands.change("a", "2019-03-25", "2019-03-26", 0, 0, 1)));
+        failCancels = false;
+
+        //held once, on the first shard, which the router still points at
+        assertEquals("a", reservations("Zoo").getJSONObject(0).getString("id"));
+        assertEquals(0, reservations("Park").length());
+        router.processCommand(Commands.cancel("a"));
+        assertEquals(0, reservations("Zoo").length());
+    }
+}